@@ -2,44 +2,106 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
+import ast.Program;
+import build.BuildReport;
+import build.UnitBuilder;
+import hawkc.HawkcWriter;
+import hawkc.MappedProgram;
 import parser.Parser;
 import parser.ParseException;
+import runtime.Budget;
+import runtime.Executable;
+import runtime.ExecutionResult;
+import runtime.NumberInput;
+import runtime.NumberOutput;
 import scanner.Scanner;
 
 /**
  * Main driver class for the Hawk language compiler.
  * Handles command line arguments (program file path) or hard-coded sample program inputs.
  * The parsing process is then initiated.
+ *
+ * Usage: java Main [-run] [-binary] [-in inputfile] [-o outfile] [-stats]
+ *                  [-steps n] [-timeout ms] [-maxout bytes] [filepath [unitfile ...]]
+ *   -run     execute the program after parsing, reading stdin and writing stdout
+ *   -binary  read and write 8 byte doubles instead of text numbers
+ *   -in      memory-map the given file as program input instead of stdin
+ *   -o       write the parsed program as a precompiled .hawkc file
+ *   -stats   print how much memory expression sharing saved
+ *   -steps, -timeout, -maxout  stop a run after that many loop iterations and calls,
+ *            milliseconds, or output bytes
+ * A filepath ending in .hawkc is loaded precompiled instead of being parsed.
+ * Unit files after the program file are built with it; each is named after its file.
  */
 public class Main {
 
     public static void main(String[] args) {
-        // If a file path is provided, read from file, otherwise use the sample program
-        Reader input;
-        try {
-            if (args.length > 0) {
-                input = new FileReader(args[0]);
+        boolean run = false;
+        boolean stats = false;
+        NumberInput.Format format = NumberInput.Format.TEXT;
+        String inputFile = null;
+        String programFile = null;
+        List<String> unitFiles = new ArrayList<>();
+        String compiledFile = null;
+        long maxSteps = Long.MAX_VALUE;
+        long timeout = Long.MAX_VALUE;
+        long maxOutput = Long.MAX_VALUE;
+
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-run")) {
+                run = true;
+            } else if (args[i].equals("-stats")) {
+                stats = true;
+            } else if (args[i].equals("-binary")) {
+                format = NumberInput.Format.BINARY;
+            } else if (args[i].equals("-in") && i + 1 < args.length) {
+                inputFile = args[++i];
+            } else if (args[i].equals("-o") && i + 1 < args.length) {
+                compiledFile = args[++i];
+            } else if (args[i].equals("-steps") && i + 1 < args.length) {
+                maxSteps = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-timeout") && i + 1 < args.length) {
+                timeout = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-maxout") && i + 1 < args.length) {
+                maxOutput = Long.parseLong(args[++i]);
+            } else if (programFile == null) {
+                programFile = args[i];
             } else {
-                // Default sample program for testing
-                String sampleProgram =
-                        "program\n" +
-                                "x, y: int;\n" +
-                            "begin\n" +
-                                "input x, y;\n" +
-                                "y := x + y;\n" +
-                                "output y;\n" +
-                            "end;\n";
-
-                input = new StringReader(sampleProgram);
+                unitFiles.add(args[i]);
             }
+        }
 
-            // Initialize the scanner and parser
-            Scanner scanner = new Scanner(input);
-            Parser parser = new Parser(scanner);
+        try {
+            Executable program;
+            if (programFile != null && programFile.endsWith(".hawkc")) {
+                program = MappedProgram.load(Paths.get(programFile));
+            } else {
+                Program parsed = unitFiles.isEmpty() ? parse(programFile, !run, stats) : build(programFile, unitFiles);
+                if (compiledFile != null) {
+                    HawkcWriter.write(parsed, Paths.get(compiledFile));
+                }
+                program = parsed;
+            }
 
-            // Start parsing
-            parser.parseProgram();
+            if (run) {
+                NumberInput in = (inputFile != null)
+                        ? NumberInput.map(Paths.get(inputFile), format)
+                        : NumberInput.of(System.in, format);
+                NumberOutput out = NumberOutput.of(System.out, format);
+                ExecutionResult result = program.run(in, out, new Budget(maxSteps, timeout, maxOutput));
+                in.close();
+                if (!result.isCompleted()) {
+                    System.err.println("Stopped: " + result);
+                    System.exit(2);
+                }
+            }
 
         } catch (ParseException e) {
             System.err.println(e.getMessage());
@@ -47,6 +109,74 @@ public class Main {
         } catch (IOException e) {
             System.err.println("IO Error: " + e.getMessage());
             System.exit(1);
+        } catch (InterruptedException e) {
+            System.exit(1);
+        }
+    }
+
+    // Build the program together with the units it imports
+    private static Program build(String programFile, List<String> unitFiles)
+            throws ParseException, IOException, InterruptedException {
+        try (UnitBuilder builder = new UnitBuilder(Runtime.getRuntime().availableProcessors())) {
+            String programName = sourceName(programFile);
+            builder.put(programName, Files.readString(Paths.get(programFile), StandardCharsets.UTF_8));
+            for (String unitFile : unitFiles) {
+                builder.put(sourceName(unitFile), Files.readString(Paths.get(unitFile), StandardCharsets.UTF_8));
+            }
+
+            BuildReport report = builder.build();
+            if (!report.isSuccess()) {
+                StringBuilder message = new StringBuilder();
+                for (Map.Entry<String, String> error : report.getErrors().entrySet()) {
+                    message.append(error.getKey()).append(": ").append(error.getValue()).append('\n');
+                }
+                throw new ParseException(message.toString().trim());
+            }
+            Program program = builder.getProgram(programName);
+            if (program == null) {
+                throw new ParseException(programFile + ": the first file must be a program, not a unit");
+            }
+            return program;
+        }
+    }
+
+    // File name without directory or extension
+    private static String sourceName(String file) {
+        String name = Paths.get(file).getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0) ? name.substring(0, dot) : name;
+    }
+
+    // Parse the program file, or the sample program when no file is given.
+    // The rule trace is left out when running, since stdout then carries the program's output.
+    private static Program parse(String programFile, boolean trace, boolean stats) throws ParseException, IOException {
+        // If a file path is provided, read from file, otherwise use the sample program
+        Reader input;
+        if (programFile != null) {
+            input = new FileReader(programFile);
+        } else {
+            // Default sample program for testing
+            String sampleProgram =
+                    "program\n" +
+                            "x, y: int;\n" +
+                        "begin\n" +
+                            "input x, y;\n" +
+                            "y := x + y;\n" +
+                            "output y;\n" +
+                        "end;\n";
+
+            input = new StringReader(sampleProgram);
+        }
+
+        // Initialize the scanner and parser
+        Scanner scanner = new Scanner(input);
+        Parser parser = new Parser(scanner, trace);
+
+        // Start parsing
+        Program program = parser.parseProgram();
+        if (stats) {
+            System.err.println(parser.getExprFactory().getSharingReport(program));
         }
+        return program;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+
+/**
+ * Assignment of an expression to a variable (ASSIGN rule).
+ */
+
+public final class AssignStmt extends Stmt {
+    private final int slot;
+    private final ValueType type;
+    private final Expr value;
+
+    public AssignStmt(int line, int slot, ValueType type, Expr value) {
+        super(line);
+        this.slot = slot;
+        this.type = type;
+        this.value = value;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public ValueType getType() {
+        return type;
+    }
+
+    public Expr getValue() {
+        return value;
+    }
+
+    @Override
+    public void execute(Execution execution) throws IOException {
+        execution.set(slot, type.coerce(value.evaluate(execution)));
+    }
+}
@@ -0,0 +1,50 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+import scanner.TokenType;
+
+/**
+ * Arithmetic on two operands (PLUS, MINUS, MULT or DIV).
+ */
+
+public final class BinaryExpr extends Expr {
+    private final TokenType operator;
+    private final Expr left;
+    private final Expr right;
+
+    public BinaryExpr(TokenType operator, Expr left, Expr right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    public TokenType getOperator() {
+        return operator;
+    }
+
+    public Expr getLeft() {
+        return left;
+    }
+
+    public Expr getRight() {
+        return right;
+    }
+
+    @Override
+    public double evaluate(Execution execution) throws IOException {
+        double a = left.evaluate(execution);
+        double b = right.evaluate(execution);
+        switch (operator) {
+            case PLUS:
+                return a + b;
+            case MINUS:
+                return a - b;
+            case MULT:
+                return a * b;
+            default:
+                return a / b;
+        }
+    }
+}
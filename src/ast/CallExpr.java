@@ -0,0 +1,51 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+
+/**
+ * Function call operand (FUNCALL rule).
+ * The target is bound when the call is parsed, so every call site is monomorphic
+ * and invoking it never looks the function up by name.
+ */
+
+public final class CallExpr extends Expr {
+    private final Function function;
+    private final Expr[] arguments;
+
+    public CallExpr(Function function, Expr[] arguments) {
+        this.function = function;
+        this.arguments = arguments;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    public Expr[] getArguments() {
+        return arguments.clone();
+    }
+
+    @Override
+    public double evaluate(Execution execution) throws IOException {
+        execution.step();
+        int frame = execution.push(function.getFrameSize());
+        ValueType paramType = function.getParamType();
+        for (int i = 0; i < arguments.length; i++) {
+            execution.setAt(frame, i, paramType.coerce(arguments[i].evaluate(execution)));
+        }
+
+        int caller = execution.enter(frame);
+        try {
+            if (execution.needsNewStack()) {
+                execution.runOnNewStack(() -> Stmt.executeAll(function.body(), execution));
+            } else {
+                Stmt.executeAll(function.body(), execution);
+            }
+            return execution.get(function.getResultSlot());
+        } finally {
+            execution.leave(caller, frame);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+
+/**
+ * Function call used as a statement ('call f(a, b);'), the result is discarded.
+ */
+
+public final class CallStmt extends Stmt {
+    private final Expr call;
+
+    public CallStmt(int line, Expr call) {
+        super(line);
+        this.call = call;
+    }
+
+    // The call, or its inlined body
+    public Expr getCall() {
+        return call;
+    }
+
+    @Override
+    public void execute(Execution execution) throws IOException {
+        call.evaluate(execution);
+    }
+}
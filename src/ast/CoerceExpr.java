@@ -0,0 +1,33 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+
+/**
+ * Narrows a value to a declared type, used where an inlined call stands in for
+ * the store into a typed result or parameter slot.
+ */
+
+public final class CoerceExpr extends Expr {
+    private final ValueType type;
+    private final Expr value;
+
+    public CoerceExpr(ValueType type, Expr value) {
+        this.type = type;
+        this.value = value;
+    }
+
+    public ValueType getType() {
+        return type;
+    }
+
+    public Expr getValue() {
+        return value;
+    }
+
+    @Override
+    public double evaluate(Execution execution) throws IOException {
+        return type.coerce(value.evaluate(execution));
+    }
+}
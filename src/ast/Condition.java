@@ -0,0 +1,50 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+import scanner.TokenType;
+
+/**
+ * Comparison of two operands (COMP rule).
+ */
+
+public final class Condition {
+    private final TokenType operator;
+    private final Expr left;
+    private final Expr right;
+
+    public Condition(TokenType operator, Expr left, Expr right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    public TokenType getOperator() {
+        return operator;
+    }
+
+    public Expr getLeft() {
+        return left;
+    }
+
+    public Expr getRight() {
+        return right;
+    }
+
+    // Evaluate the comparison
+    public boolean test(Execution execution) throws IOException {
+        double a = left.evaluate(execution);
+        double b = right.evaluate(execution);
+        switch (operator) {
+            case EQUALS:
+                return a == b;
+            case NOT_EQUALS:
+                return a != b;
+            case GREATER_THAN:
+                return a > b;
+            default:
+                return a < b;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+
+/**
+ * Base class of Hawk expression nodes (EXPR, FACTOR and OPERAND rules).
+ * Nodes are immutable and evaluate themselves against an Execution.
+ */
+
+public abstract class Expr {
+
+    // Compute the value of this expression
+    public abstract double evaluate(Execution execution) throws IOException;
+}
@@ -0,0 +1,81 @@
+package ast;
+
+/**
+ * User defined Hawk function (FUNC_DEF rule).
+ * Its frame holds the parameters in slots 0..paramCount-1, the result variable
+ * (named after the function) in slot paramCount, then the local variables.
+ * The body is attached once parsing of the definition finishes, which lets the
+ * function call itself; after that the function is immutable.
+ */
+
+public final class Function {
+    private final String name;
+    private final int paramCount;
+    private final ValueType paramType;
+    private final ValueType resultType;
+    private String[] names;
+    private ValueType[] types;
+    private Stmt[] body;
+
+    public Function(String name, int paramCount, ValueType paramType, ValueType resultType) {
+        this.name = name;
+        this.paramCount = paramCount;
+        this.paramType = paramType;
+        this.resultType = resultType;
+    }
+
+    // Attach frame layout and body, only allowed once
+    public void define(String[] names, ValueType[] types, Stmt[] body) {
+        if (this.body != null) {
+            throw new IllegalStateException("Function '" + name + "' is already defined");
+        }
+        this.names = names;
+        this.types = types;
+        this.body = body;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getParamCount() {
+        return paramCount;
+    }
+
+    public ValueType getParamType() {
+        return paramType;
+    }
+
+    public ValueType getResultType() {
+        return resultType;
+    }
+
+    public int getResultSlot() {
+        return paramCount;
+    }
+
+    public int getFrameSize() {
+        return names.length;
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public ValueType getType(int slot) {
+        return types[slot];
+    }
+
+    public boolean isDefined() {
+        return body != null;
+    }
+
+    // Body statements, shared rather than copied since calls run them directly
+    Stmt[] body() {
+        return body;
+    }
+
+    public Stmt[] getBody() {
+        return body.clone();
+    }
+}
@@ -0,0 +1,44 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+
+/**
+ * Conditional statement with optional else section (IF_STMT rule).
+ */
+
+public final class IfStmt extends Stmt {
+    private final Condition condition;
+    private final Stmt[] thenBody;
+    private final Stmt[] elseBody;
+
+    public IfStmt(int line, Condition condition, Stmt[] thenBody, Stmt[] elseBody) {
+        super(line);
+        this.condition = condition;
+        this.thenBody = thenBody;
+        this.elseBody = elseBody;
+    }
+
+    public Condition getCondition() {
+        return condition;
+    }
+
+    public Stmt[] getThenBody() {
+        return thenBody.clone();
+    }
+
+    // Empty when there is no else section
+    public Stmt[] getElseBody() {
+        return elseBody.clone();
+    }
+
+    @Override
+    public void execute(Execution execution) throws IOException {
+        if (condition.test(execution)) {
+            executeAll(thenBody, execution);
+        } else {
+            executeAll(elseBody, execution);
+        }
+    }
+}
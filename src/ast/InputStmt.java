@@ -0,0 +1,37 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+import runtime.NumberInput;
+
+/**
+ * Reads one value per listed variable from the execution's input (INPUT rule).
+ */
+
+public final class InputStmt extends Stmt {
+    private final int[] slots;
+    private final ValueType[] types;
+
+    public InputStmt(int line, int[] slots, ValueType[] types) {
+        super(line);
+        this.slots = slots;
+        this.types = types;
+    }
+
+    public int[] getSlots() {
+        return slots.clone();
+    }
+
+    public ValueType[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void execute(Execution execution) throws IOException {
+        NumberInput input = execution.getInput();
+        for (int i = 0; i < slots.length; i++) {
+            execution.set(slots[i], types[i].coerce(input.read()));
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ast;
+
+import runtime.Execution;
+
+/**
+ * Numeric literal operand.
+ */
+
+public final class NumExpr extends Expr {
+    private final double value;
+
+    public NumExpr(double value) {
+        this.value = value;
+    }
+
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public double evaluate(Execution execution) {
+        return value;
+    }
+}
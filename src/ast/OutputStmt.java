@@ -0,0 +1,39 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+import runtime.NumberOutput;
+
+/**
+ * Writes the listed variables, or a single number, to the execution's output (OUTPUT rule).
+ */
+
+public final class OutputStmt extends Stmt {
+    private final Expr[] values;
+    private final ValueType[] types;
+
+    public OutputStmt(int line, Expr[] values, ValueType[] types) {
+        super(line);
+        this.values = values;
+        this.types = types;
+    }
+
+    public Expr[] getValues() {
+        return values.clone();
+    }
+
+    public ValueType[] getTypes() {
+        return types.clone();
+    }
+
+    @Override
+    public void execute(Execution execution) throws IOException {
+        NumberOutput output = execution.getOutput();
+        for (int i = 0; i < values.length; i++) {
+            types[i].write(output, values[i].evaluate(execution));
+        }
+        output.endRecord();
+        execution.checkOutput();
+    }
+}
@@ -0,0 +1,68 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Budget;
+import runtime.BudgetExceededException;
+import runtime.Executable;
+import runtime.Execution;
+import runtime.ExecutionResult;
+import runtime.NumberInput;
+import runtime.NumberOutput;
+
+/**
+ * Parsed Hawk program (PROGRAM rule).
+ * Immutable once built by the parser; every run gets its own Execution.
+ */
+
+public final class Program implements Executable {
+    private final String[] names;
+    private final ValueType[] types;
+    private final Function[] functions;
+    private final Stmt[] body;
+
+    // names and types are indexed by frame slot
+    public Program(String[] names, ValueType[] types, Function[] functions, Stmt[] body) {
+        this.names = names;
+        this.types = types;
+        this.functions = functions;
+        this.body = body;
+    }
+
+    public int getFrameSize() {
+        return names.length;
+    }
+
+    public String getName(int slot) {
+        return names[slot];
+    }
+
+    public ValueType getType(int slot) {
+        return types[slot];
+    }
+
+    // Functions in definition order
+    public Function[] getFunctions() {
+        return functions.clone();
+    }
+
+    public Stmt[] getBody() {
+        return body.clone();
+    }
+
+    // Run the program, flushing any buffered output at the end
+    @Override
+    public ExecutionResult run(NumberInput input, NumberOutput output, Budget budget) throws IOException {
+        Execution execution = new Execution(getFrameSize(), input, output, budget);
+        try {
+            Stmt.executeAll(body, execution);
+            return execution.finish(ExecutionResult.Status.COMPLETED);
+        } catch (BudgetExceededException e) {
+            return execution.finish(e.getStatus());
+        } catch (StackOverflowError e) {
+            throw execution.stackOverflow();
+        } finally {
+            execution.endRun();
+        }
+    }
+}
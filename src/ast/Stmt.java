@@ -0,0 +1,33 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+
+/**
+ * Base class of Hawk statement nodes (STMT rule).
+ * Nodes are immutable and execute themselves against an Execution.
+ */
+
+public abstract class Stmt {
+    private final int line;
+
+    protected Stmt(int line) {
+        this.line = line;
+    }
+
+    // Source line the statement starts on
+    public int getLine() {
+        return line;
+    }
+
+    // Run this statement
+    public abstract void execute(Execution execution) throws IOException;
+
+    // Run a statement section in order
+    public static void executeAll(Stmt[] statements, Execution execution) throws IOException {
+        for (Stmt statement : statements) {
+            statement.execute(execution);
+        }
+    }
+}
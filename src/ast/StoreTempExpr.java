@@ -0,0 +1,35 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+
+/**
+ * First evaluation of a common subexpression: computes the value and keeps it in a
+ * temporary frame slot, where later occurrences in the same statement read it back.
+ */
+
+public final class StoreTempExpr extends Expr {
+    private final int slot;
+    private final Expr value;
+
+    public StoreTempExpr(int slot, Expr value) {
+        this.slot = slot;
+        this.value = value;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    public Expr getValue() {
+        return value;
+    }
+
+    @Override
+    public double evaluate(Execution execution) throws IOException {
+        double result = value.evaluate(execution);
+        execution.set(slot, result);
+        return result;
+    }
+}
@@ -0,0 +1,39 @@
+package ast;
+
+/**
+ * Separately compiled Hawk unit (UNIT rule).
+ * Everything a unit declares is exported: importing it declares the unit's variables
+ * in the importer and makes its functions callable there. Imports are not re-exported.
+ */
+
+public final class Unit {
+    private final String name;
+    private final String[] names;
+    private final ValueType[] types;
+    private final Function[] functions;
+
+    public Unit(String name, String[] names, ValueType[] types, Function[] functions) {
+        this.name = name;
+        this.names = names;
+        this.types = types;
+        this.functions = functions;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Exported variable names, with their types at the same index
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    public ValueType[] getTypes() {
+        return types.clone();
+    }
+
+    // Exported functions in definition order
+    public Function[] getFunctions() {
+        return functions.clone();
+    }
+}
@@ -0,0 +1,59 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.NumberOutput;
+
+/**
+ * Declared types of Hawk variables.
+ * All values are carried as doubles at run time, the type decides how a value is
+ * narrowed when stored and how it is printed.
+ */
+
+public enum ValueType {
+    INT, FLOAT, DOUBLE;
+
+    // Map the type name used by the parser and symbol table
+    public static ValueType of(String name) {
+        switch (name) {
+            case "int":
+                return INT;
+            case "float":
+                return FLOAT;
+            default:
+                return DOUBLE;
+        }
+    }
+
+    // Type name as written in Hawk source
+    public String getName() {
+        return name().toLowerCase();
+    }
+
+    // Narrow a value to this type
+    public double coerce(double value) {
+        switch (this) {
+            case INT:
+                return (long) value;
+            case FLOAT:
+                return (float) value;
+            default:
+                return value;
+        }
+    }
+
+    // Write a value of this type
+    public void write(NumberOutput output, double value) throws IOException {
+        switch (this) {
+            case INT:
+                output.writeLong((long) value);
+                break;
+            case FLOAT:
+                output.writeFloat((float) value);
+                break;
+            default:
+                output.writeDouble(value);
+                break;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ast;
+
+import runtime.Execution;
+
+/**
+ * Variable operand, resolved to its frame slot at parse time.
+ */
+
+public final class VarExpr extends Expr {
+    private final String name;
+    private final int slot;
+
+    public VarExpr(String name, int slot) {
+        this.name = name;
+        this.slot = slot;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSlot() {
+        return slot;
+    }
+
+    @Override
+    public double evaluate(Execution execution) {
+        return execution.get(slot);
+    }
+}
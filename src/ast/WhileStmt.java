@@ -0,0 +1,36 @@
+package ast;
+
+import java.io.IOException;
+
+import runtime.Execution;
+
+/**
+ * Loop statement (WHILE_STMT rule).
+ */
+
+public final class WhileStmt extends Stmt {
+    private final Condition condition;
+    private final Stmt[] body;
+
+    public WhileStmt(int line, Condition condition, Stmt[] body) {
+        super(line);
+        this.condition = condition;
+        this.body = body;
+    }
+
+    public Condition getCondition() {
+        return condition;
+    }
+
+    public Stmt[] getBody() {
+        return body.clone();
+    }
+
+    @Override
+    public void execute(Execution execution) throws IOException {
+        while (condition.test(execution)) {
+            executeAll(body, execution);
+            execution.step();
+        }
+    }
+}
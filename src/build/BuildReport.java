@@ -0,0 +1,51 @@
+package build;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What one UnitBuilder.build() did.
+ */
+
+public final class BuildReport {
+    private final List<String> compiled;
+    private final Map<String, String> errors;
+    private final int waves;
+    private final long elapsedNanos;
+
+    public BuildReport(List<String> compiled, Map<String, String> errors, int waves, long elapsedNanos) {
+        this.compiled = compiled;
+        this.errors = errors;
+        this.waves = waves;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Sources compiled successfully by this build, in wave order
+    public List<String> getCompiled() {
+        return compiled;
+    }
+
+    // Error message for each source that failed, by source name
+    public Map<String, String> getErrors() {
+        return errors;
+    }
+
+    public boolean isSuccess() {
+        return errors.isEmpty();
+    }
+
+    // Number of dependency levels that had something to compile
+    public int getWaves() {
+        return waves;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return compiled.size() + " compiled in " + waves + " wave(s), " + errors.size() + " failed, " +
+                (elapsedNanos / 1_000_000) + " ms";
+    }
+}
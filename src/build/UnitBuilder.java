@@ -0,0 +1,317 @@
+package build;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import ast.Program;
+import ast.Unit;
+import parser.ParseException;
+import parser.Parser;
+import parser.UnitHeader;
+import scanner.Scanner;
+
+/**
+ * Incremental builder for Hawk programs split into units.
+ * Sources are registered by name (a unit's name must match the one it declares).
+ * build() reads the headers of new or changed sources in parallel, orders everything by
+ * its imports, then compiles in topological waves: every source in a wave only imports
+ * sources from earlier waves, so a wave is compiled in parallel. Only changed sources,
+ * sources that failed last time and everything that (transitively) imports them are
+ * recompiled. The builder itself is meant to be driven from one thread.
+ */
+
+public final class UnitBuilder implements AutoCloseable {
+    private final ExecutorService executor;
+    private final Map<String, Source> sources = new HashMap<>();
+
+    // One registered source and the result of compiling it
+    private static final class Source {
+        private final String name;
+        private final String text;
+        private final byte[] hash;
+        private UnitHeader header;
+        private Unit unit;
+        private Program program;
+        private String error;
+        private boolean stale = true;
+
+        Source(String name, String text) {
+            this.name = name;
+            this.text = text;
+            this.hash = hash(text);
+        }
+    }
+
+    // Create builder compiling up to parallelism sources at once
+    public UnitBuilder(int parallelism) {
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "hawk-build");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Add a source, or replace it if its text changed
+    public void put(String name, String text) {
+        Source existing = sources.get(name);
+        if (existing == null || !Arrays.equals(existing.hash, hash(text))) {
+            sources.put(name, new Source(name, text));
+        }
+    }
+
+    // Remove a source; whatever imports it fails on the next build
+    public void remove(String name) {
+        sources.remove(name);
+        for (Source source : sources.values()) {
+            if (source.header != null && source.header.getImports().contains(name)) {
+                source.stale = true;
+            }
+        }
+    }
+
+    // Compiled unit by name, or null if it is not (successfully) built
+    public Unit getUnit(String name) {
+        Source source = sources.get(name);
+        return (source != null) ? source.unit : null;
+    }
+
+    // Compiled program by source name, or null if it is not (successfully) built
+    public Program getProgram(String name) {
+        Source source = sources.get(name);
+        return (source != null) ? source.program : null;
+    }
+
+    // Bring every source up to date
+    public BuildReport build() throws InterruptedException {
+        long start = System.nanoTime();
+        Map<String, String> errors = new TreeMap<>();
+
+        // Headers of new and changed sources, read in parallel
+        List<Source> unread = new ArrayList<>();
+        for (Source source : sources.values()) {
+            if (source.header == null) {
+                unread.add(source);
+            }
+        }
+        runAll(unread, UnitBuilder::readHeader);
+
+        // Reverse edges, so a change can be pushed to everything importing it
+        Map<String, List<Source>> dependents = new HashMap<>();
+        for (Source source : sources.values()) {
+            if (source.header != null) {
+                for (String imported : source.header.getImports()) {
+                    dependents.computeIfAbsent(imported, name -> new ArrayList<>()).add(source);
+                }
+            }
+        }
+        Set<Source> dirty = new HashSet<>();
+        Deque<Source> work = new ArrayDeque<>();
+        for (Source source : sources.values()) {
+            if (source.stale && dirty.add(source)) {
+                work.add(source);
+            }
+        }
+        while (!work.isEmpty()) {
+            Source source = work.poll();
+            for (Source dependent : dependents.getOrDefault(source.name, Collections.emptyList())) {
+                if (dirty.add(dependent)) {
+                    work.add(dependent);
+                }
+            }
+        }
+
+        // Group dirty sources by level: one more than the deepest thing they import
+        Map<Source, Integer> levels = new HashMap<>();
+        List<List<Source>> waves = new ArrayList<>();
+        for (Source source : dirty) {
+            source.unit = null;
+            source.program = null;
+            if (source.error == null) {
+                level(source, levels, new HashSet<>());
+            }
+            if (source.error == null) {
+                int level = levels.get(source);
+                while (waves.size() <= level) {
+                    waves.add(new ArrayList<>());
+                }
+                waves.get(level).add(source);
+            }
+        }
+
+        List<String> compiled = new ArrayList<>();
+        int waveCount = 0;
+        for (List<Source> wave : waves) {
+            List<Source> ready = new ArrayList<>();
+            for (Source source : wave) {
+                String failed = failedImport(source);
+                if (failed != null) {
+                    source.error = "Imported unit '" + failed + "' failed to compile";
+                } else {
+                    ready.add(source);
+                }
+            }
+            if (ready.isEmpty()) {
+                continue;
+            }
+            waveCount++;
+            runAll(ready, this::compile);
+            for (Source source : wave) {
+                if (source.error == null) {
+                    source.stale = false;
+                    compiled.add(source.name);
+                }
+            }
+        }
+
+        for (Source source : dirty) {
+            if (source.error != null) {
+                errors.put(source.name, source.error);
+                source.stale = true;
+                // Header is read again next time in case the problem was in it
+                source.header = null;
+                source.error = null;
+            }
+        }
+        return new BuildReport(compiled, errors, waveCount, System.nanoTime() - start);
+    }
+
+    // Run a task per source in parallel. Anything a task throws besides the parse errors it
+    // handles itself (a StackOverflowError on deeply nested input, say) becomes that source's error.
+    private void runAll(List<Source> targets, Consumer<Source> task) throws InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<>(targets.size());
+        for (Source source : targets) {
+            tasks.add(() -> {
+                task.accept(source);
+                return null;
+            });
+        }
+        List<Future<Void>> results = executor.invokeAll(tasks);
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get();
+            } catch (ExecutionException e) {
+                targets.get(i).error = describe(e.getCause());
+            }
+        }
+    }
+
+    private static String describe(Throwable failure) {
+        if (failure instanceof StackOverflowError) {
+            return "Source is nested too deeply to compile";
+        }
+        return "Internal error: " + failure;
+    }
+
+    private static void readHeader(Source source) {
+        try {
+            UnitHeader header = new Parser(new Scanner(new StringReader(source.text)), false).parseHeader();
+            if (header.isUnit() && !header.getName().equals(source.name)) {
+                source.error = "Unit '" + header.getName() + "' is registered as '" + source.name + "'";
+            }
+            source.header = header;
+        } catch (ParseException | IOException e) {
+            source.error = e.getMessage();
+        }
+    }
+
+    // Work out the level of a source, reporting unknown imports and import cycles
+    private int level(Source source, Map<Source, Integer> levels, Set<Source> visiting) {
+        Integer known = levels.get(source);
+        if (known != null) {
+            return known;
+        }
+        if (source.error != null || source.header == null) {
+            return -1;
+        }
+        if (!visiting.add(source)) {
+            source.error = "Import cycle through unit '" + source.name + "'";
+            return -1;
+        }
+
+        int level = 0;
+        for (String imported : source.header.getImports()) {
+            Source dependency = sources.get(imported);
+            if (dependency == null || dependency.header == null || !dependency.header.isUnit()) {
+                source.error = "Unknown unit '" + imported + "'";
+                break;
+            }
+            int dependencyLevel = level(dependency, levels, visiting);
+            if (dependencyLevel < 0) {
+                if (source.error == null) {
+                    source.error = (dependency.error != null && dependency.error.startsWith("Import cycle"))
+                            ? dependency.error : "Imported unit '" + imported + "' failed to compile";
+                }
+                break;
+            }
+            level = Math.max(level, dependencyLevel + 1);
+        }
+        visiting.remove(source);
+
+        if (source.error != null) {
+            return -1;
+        }
+        levels.put(source, level);
+        return level;
+    }
+
+    // Name of an import without a compiled unit, or null if all are available
+    private String failedImport(Source source) {
+        for (String imported : source.header.getImports()) {
+            if (sources.get(imported).unit == null) {
+                return imported;
+            }
+        }
+        return null;
+    }
+
+    // Full parse of one source against its already compiled imports
+    private void compile(Source source) {
+        Map<String, Unit> imports = new HashMap<>();
+        for (String imported : source.header.getImports()) {
+            imports.put(imported, sources.get(imported).unit);
+        }
+        try {
+            Parser parser = new Parser(new Scanner(new StringReader(source.text)), false, imports);
+            if (source.header.isUnit()) {
+                source.unit = parser.parseUnit();
+            } else {
+                source.program = parser.parseProgram();
+            }
+        } catch (ParseException | IOException e) {
+            source.error = e.getMessage();
+        }
+    }
+
+    private static byte[] hash(String text) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,138 @@
+package engine;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ast.Program;
+import parser.ParseException;
+import parser.Parser;
+import runtime.Budget;
+import runtime.Executable;
+import runtime.ExecutionResult;
+import runtime.NumberInput;
+import runtime.NumberOutput;
+import scanner.Scanner;
+
+/**
+ * Library entry point for embedding Hawk.
+ * compile() turns source into an immutable Program that any number of threads may run
+ * at once; compiled programs are cached by the SHA-256 of their source so a service can
+ * call compile() per request without reparsing. Unlike Main, nothing is printed and
+ * errors are reported as exceptions.
+ */
+
+public final class HawkEngine {
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final Map<String, Program> cache = new ConcurrentHashMap<>();
+    private final int cacheSize;
+
+    // Create engine caching up to cacheSize compiled programs
+    public HawkEngine(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    public HawkEngine() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    // Compile source, or return the cached program for identical source
+    public Program compile(String source) throws ParseException {
+        String key = hash(source);
+        Program program = cache.get(key);
+        if (program != null) {
+            return program;
+        }
+
+        program = parse(source);
+        if (cacheSize > 0) {
+            // Drop an arbitrary entry when full; a miss only costs one reparse
+            if (cache.size() >= cacheSize) {
+                Iterator<String> keys = cache.keySet().iterator();
+                if (keys.hasNext()) {
+                    keys.next();
+                    keys.remove();
+                }
+            }
+            Program existing = cache.putIfAbsent(key, program);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return program;
+    }
+
+    // Compile without touching the cache
+    public static Program parse(String source) throws ParseException {
+        try {
+            Parser parser = new Parser(new Scanner(new StringReader(source)), false);
+            return parser.parseProgram();
+        } catch (IOException e) {
+            // The scanner reports lexical errors as IOExceptions
+            throw new ParseException(e.getMessage());
+        }
+    }
+
+    // Number of programs currently cached
+    public int getCachedCount() {
+        return cache.size();
+    }
+
+    public void clearCache() {
+        cache.clear();
+    }
+
+    // Run with caller supplied channels
+    public void run(Executable program, NumberInput input, NumberOutput output) throws IOException {
+        program.run(input, output);
+    }
+
+    // Run untrusted code with caller supplied channels, stopping when the budget runs out
+    public ExecutionResult run(Executable program, NumberInput input, NumberOutput output,
+                               Budget budget) throws IOException {
+        return program.run(input, output, budget);
+    }
+
+    // Run with text input, returning the text output
+    public String run(Executable program, String input) throws IOException {
+        NumberInput in = NumberInput.wrap(input.getBytes(StandardCharsets.US_ASCII), NumberInput.Format.TEXT);
+        NumberOutput out = NumberOutput.inMemory(NumberInput.Format.TEXT, 256);
+        program.run(in, out);
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    // Run with the given values as input, returning every value output
+    public double[] run(Executable program, double... input) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(input.length * Double.BYTES);
+        bytes.asDoubleBuffer().put(input);
+        NumberOutput out = NumberOutput.inMemory(NumberInput.Format.BINARY, 256);
+        program.run(NumberInput.wrap(bytes, NumberInput.Format.BINARY), out);
+
+        ByteBuffer result = ByteBuffer.wrap(out.toByteArray());
+        double[] values = new double[result.remaining() / Double.BYTES];
+        result.asDoubleBuffer().get(values);
+        return values;
+    }
+
+    // Hex SHA-256 of the source text
+    private static String hash(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
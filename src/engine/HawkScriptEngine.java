@@ -0,0 +1,132 @@
+package engine;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+import ast.Program;
+import parser.ParseException;
+import runtime.NumberInput;
+import runtime.NumberOutput;
+
+/**
+ * JSR-223 adapter around HawkEngine.
+ * A script reads its 'input' values as text from the context's reader, only as they are
+ * needed, and its 'output' values are written as text to the context's writer. eval()
+ * always returns null since Hawk programs have no result value.
+ */
+
+public final class HawkScriptEngine extends AbstractScriptEngine implements Compilable {
+    private final HawkScriptEngineFactory factory;
+    private final HawkEngine engine;
+
+    HawkScriptEngine(HawkScriptEngineFactory factory, HawkEngine engine) {
+        this.factory = factory;
+        this.engine = engine;
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return run(compileProgram(script), context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return eval(readAll(reader), context);
+    }
+
+    @Override
+    public CompiledScript compile(String script) throws ScriptException {
+        return new HawkCompiledScript(compileProgram(script));
+    }
+
+    @Override
+    public CompiledScript compile(Reader script) throws ScriptException {
+        return compile(readAll(script));
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return new SimpleBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return factory;
+    }
+
+    private Program compileProgram(String script) throws ScriptException {
+        try {
+            return engine.compile(script);
+        } catch (ParseException e) {
+            throw new ScriptException(e.getMessage());
+        }
+    }
+
+    // Run with the context's reader as input and its writer as output.
+    // The reader is only read as 'input' statements need values, so a script that reads
+    // nothing never touches it (the default context reader is System.in).
+    private Object run(Program program, ScriptContext context) throws ScriptException {
+        try {
+            Reader reader = context.getReader();
+            NumberInput input = (reader != null)
+                    ? NumberInput.of(new ReaderInputStream(reader), NumberInput.Format.TEXT)
+                    : NumberInput.wrap(new byte[0], NumberInput.Format.TEXT);
+            NumberOutput out = NumberOutput.inMemory(NumberInput.Format.TEXT, 256);
+            engine.run(program, input, out);
+            String output = new String(out.toByteArray(), StandardCharsets.US_ASCII);
+            Writer writer = context.getWriter();
+            if (writer != null) {
+                writer.write(output);
+                writer.flush();
+            }
+            return null;
+        } catch (IOException e) {
+            throw new ScriptException(e.getMessage());
+        }
+    }
+
+    private static String readAll(Reader reader) throws ScriptException {
+        try {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+            return text.toString();
+        } catch (IOException e) {
+            throw new ScriptException(e.getMessage());
+        }
+    }
+
+    // Compiled form handed out by compile(), reusable across contexts and threads
+    private final class HawkCompiledScript extends CompiledScript {
+        private final Program program;
+
+        HawkCompiledScript(Program program) {
+            this.program = program;
+        }
+
+        @Override
+        public Object eval(ScriptContext context) throws ScriptException {
+            return run(program, context);
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+            return HawkScriptEngine.this;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+/**
+ * JSR-223 factory for Hawk, registered under META-INF/services.
+ * All engines from one factory share a HawkEngine and therefore its compile cache.
+ */
+
+public final class HawkScriptEngineFactory implements ScriptEngineFactory {
+    private static final String VERSION = "1.0";
+
+    private final HawkEngine engine = new HawkEngine();
+
+    @Override
+    public String getEngineName() {
+        return "Hawk";
+    }
+
+    @Override
+    public String getEngineVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return Collections.singletonList("hawk");
+    }
+
+    @Override
+    public List<String> getMimeTypes() {
+        return Collections.singletonList("text/x-hawk");
+    }
+
+    @Override
+    public List<String> getNames() {
+        return Arrays.asList("hawk", "Hawk");
+    }
+
+    @Override
+    public String getLanguageName() {
+        return "Hawk";
+    }
+
+    @Override
+    public String getLanguageVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public Object getParameter(String key) {
+        switch (key) {
+            case ScriptEngine.ENGINE:
+                return getEngineName();
+            case ScriptEngine.ENGINE_VERSION:
+                return getEngineVersion();
+            case ScriptEngine.NAME:
+                return "hawk";
+            case ScriptEngine.LANGUAGE:
+                return getLanguageName();
+            case ScriptEngine.LANGUAGE_VERSION:
+                return getLanguageVersion();
+            case "THREADING":
+                return "MULTITHREADED";
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String getMethodCallSyntax(String obj, String m, String... args) {
+        return m + "(" + String.join(", ", args) + ")";
+    }
+
+    @Override
+    public String getOutputStatement(String toDisplay) {
+        return "output " + toDisplay + ";";
+    }
+
+    @Override
+    public String getProgram(String... statements) {
+        StringBuilder program = new StringBuilder("program\nbegin\n");
+        for (String statement : statements) {
+            program.append(statement).append('\n');
+        }
+        return program.append("end;\n").toString();
+    }
+
+    @Override
+    public ScriptEngine getScriptEngine() {
+        return new HawkScriptEngine(this, engine);
+    }
+}
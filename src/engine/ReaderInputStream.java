@@ -0,0 +1,45 @@
+package engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Byte view of a character Reader, so NumberInput can pull script input on demand.
+ * Hawk input is ASCII text; any other character becomes '?' and fails to parse as a number.
+ * Reads never wait for more characters than the first read returns.
+ */
+
+final class ReaderInputStream extends InputStream {
+    private final Reader reader;
+    private char[] chars = new char[0];
+
+    ReaderInputStream(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int c = reader.read();
+        return (c < 0) ? -1 : toByte(c);
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (chars.length < length) {
+            chars = new char[length];
+        }
+        int read = reader.read(chars, 0, length);
+        for (int i = 0; i < read; i++) {
+            bytes[offset + i] = (byte) toByte(chars[i]);
+        }
+        return read;
+    }
+
+    private static int toByte(int c) {
+        return (c < 0x80) ? c : '?';
+    }
+}
@@ -0,0 +1,68 @@
+package hawkc;
+
+/**
+ * Layout of the precompiled Hawk program format (.hawkc).
+ * All integers are big-endian, offsets are absolute file positions.
+ *
+ * Header (HEADER_SIZE bytes):
+ *   0  magic "HWKC"            4  u16 version, u16 reserved
+ *   8  u32 payload length     12  u32 CRC32 of the payload (bytes after the header)
+ *   16 u32 symbols offset     20  u32 constants offset
+ *   24 u32 functions offset   28  u32 code offset
+ *   32 u32 main entry pc      36  u32 main frame size
+ *
+ * Symbols:   u32 count, count x (u32 name offset, u8 type, 3 pad), then the names as
+ *            u16 length + UTF-8. Main program slots come first, each function's slots follow.
+ * Constants: u32 count, count x f64.
+ * Functions: u32 count, count x (u32 entry pc, u16 frame size, u16 param count,
+ *            u8 param type, u8 result type, u16 pad, u32 first symbol).
+ * Code:      u32 length, then instructions; pcs are relative to the first instruction.
+ */
+
+public final class HawkcFormat {
+    public static final int MAGIC = 0x48574B43; // "HWKC"
+    // Version 2 added TEE
+    public static final int VERSION = 2;
+    public static final int HEADER_SIZE = 40;
+    public static final int SYMBOL_SIZE = 8;
+    public static final int FUNCTION_SIZE = 16;
+
+    // Header field positions
+    static final int PAYLOAD_LENGTH = 8;
+    static final int CHECKSUM = 12;
+    static final int SYMBOLS = 16;
+    static final int CONSTANTS = 20;
+    static final int FUNCTIONS = 24;
+    static final int CODE = 28;
+    static final int MAIN_ENTRY = 32;
+    static final int MAIN_FRAME_SIZE = 36;
+
+    // Instructions; operands follow the opcode byte
+    static final byte CONST = 1;        // u16 constant index
+    static final byte LOAD = 2;         // u16 slot
+    static final byte STORE = 3;        // u16 slot, u8 type
+    static final byte ADD = 4;
+    static final byte SUB = 5;
+    static final byte MUL = 6;
+    static final byte DIV = 7;
+    static final byte COERCE = 8;       // u8 type
+    static final byte JUMP = 9;         // u32 pc
+    static final byte JUMP_UNLESS = 10; // u8 comparison, u32 pc
+    static final byte INPUT = 11;       // u16 slot, u8 type
+    static final byte OUTPUT = 12;      // u8 type
+    static final byte END_RECORD = 13;
+    static final byte CALL = 14;        // u16 function index
+    static final byte RETURN = 15;
+    static final byte POP = 16;
+    static final byte HALT = 17;
+    static final byte TEE = 18;         // u16 slot, stores the top value without popping it
+
+    // Comparison operands of JUMP_UNLESS
+    static final byte EQUALS = 0;
+    static final byte NOT_EQUALS = 1;
+    static final byte GREATER_THAN = 2;
+    static final byte LESS_THAN = 3;
+
+    private HawkcFormat() {
+    }
+}
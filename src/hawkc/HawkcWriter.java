@@ -0,0 +1,302 @@
+package hawkc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import ast.AssignStmt;
+import ast.BinaryExpr;
+import ast.CallExpr;
+import ast.CallStmt;
+import ast.CoerceExpr;
+import ast.Condition;
+import ast.Expr;
+import ast.Function;
+import ast.IfStmt;
+import ast.InputStmt;
+import ast.NumExpr;
+import ast.OutputStmt;
+import ast.Program;
+import ast.Stmt;
+import ast.StoreTempExpr;
+import ast.ValueType;
+import ast.VarExpr;
+import ast.WhileStmt;
+
+/**
+ * Compiles a parsed Program into the .hawkc format described in HawkcFormat.
+ * Expressions become stack machine instructions, while/if become jumps, and every
+ * literal is stored once in the constant pool.
+ */
+
+public final class HawkcWriter {
+    private final Program program;
+    private final List<Function> functions = new ArrayList<>();
+    private final Map<Function, Integer> functionIndex = new IdentityHashMap<>();
+    private final Map<Long, Integer> constantIndex = new HashMap<>();
+    private final List<Double> constants = new ArrayList<>();
+    private ByteBuffer code = ByteBuffer.allocate(1024);
+
+    private HawkcWriter(Program program) {
+        this.program = program;
+        for (Function function : program.getFunctions()) {
+            index(function);
+        }
+    }
+
+    // Index of a function record; functions only reached through imported units are added here
+    private int index(Function function) {
+        return functionIndex.computeIfAbsent(function, f -> {
+            functions.add(f);
+            return functions.size() - 1;
+        });
+    }
+
+    // Encode program as .hawkc bytes
+    public static byte[] toBytes(Program program) {
+        return new HawkcWriter(program).assemble();
+    }
+
+    // Encode program and write it to a file
+    public static void write(Program program, Path path) throws IOException {
+        Files.write(path, toBytes(program));
+    }
+
+    private byte[] assemble() {
+        // Main body first (entry pc 0), then each function; the list grows as calls are found
+        compileAll(program.getBody());
+        code(1).put(HawkcFormat.HALT);
+        List<Integer> entries = new ArrayList<>();
+        for (int i = 0; i < functions.size(); i++) {
+            Function function = functions.get(i);
+            entries.add(code.position());
+            compileAll(function.getBody());
+            code(3).put(HawkcFormat.LOAD).putShort(u16(function.getResultSlot()));
+            code(1).put(HawkcFormat.RETURN);
+        }
+
+        // Symbol records and their name pool
+        List<String> names = new ArrayList<>();
+        List<ValueType> types = new ArrayList<>();
+        for (int slot = 0; slot < program.getFrameSize(); slot++) {
+            names.add(program.getName(slot));
+            types.add(program.getType(slot));
+        }
+        int[] firstSymbol = new int[functions.size()];
+        for (int i = 0; i < functions.size(); i++) {
+            Function function = functions.get(i);
+            firstSymbol[i] = names.size();
+            for (int slot = 0; slot < function.getFrameSize(); slot++) {
+                names.add(function.getName(slot));
+                types.add(function.getType(slot));
+            }
+        }
+        byte[][] encodedNames = new byte[names.size()][];
+        int poolSize = 0;
+        for (int i = 0; i < encodedNames.length; i++) {
+            encodedNames[i] = names.get(i).getBytes(StandardCharsets.UTF_8);
+            poolSize += 2 + encodedNames[i].length;
+        }
+
+        int symbolsOffset = HawkcFormat.HEADER_SIZE;
+        int constantsOffset = symbolsOffset + 4 + names.size() * HawkcFormat.SYMBOL_SIZE + poolSize;
+        int functionsOffset = constantsOffset + 4 + constants.size() * Double.BYTES;
+        int codeOffset = functionsOffset + 4 + functions.size() * HawkcFormat.FUNCTION_SIZE;
+        int total = codeOffset + 4 + code.position();
+
+        ByteBuffer out = ByteBuffer.allocate(total);
+        out.putInt(HawkcFormat.MAGIC).putShort((short) HawkcFormat.VERSION).putShort((short) 0);
+        out.putInt(total - HawkcFormat.HEADER_SIZE).putInt(0);
+        out.putInt(symbolsOffset).putInt(constantsOffset).putInt(functionsOffset).putInt(codeOffset);
+        out.putInt(0).putInt(program.getFrameSize());
+
+        out.putInt(names.size());
+        int nameOffset = symbolsOffset + 4 + names.size() * HawkcFormat.SYMBOL_SIZE;
+        for (int i = 0; i < names.size(); i++) {
+            out.putInt(nameOffset).put((byte) types.get(i).ordinal()).put((byte) 0).putShort((short) 0);
+            nameOffset += 2 + encodedNames[i].length;
+        }
+        for (byte[] name : encodedNames) {
+            out.putShort(u16(name.length)).put(name);
+        }
+
+        out.putInt(constants.size());
+        for (double constant : constants) {
+            out.putDouble(constant);
+        }
+
+        out.putInt(functions.size());
+        for (int i = 0; i < functions.size(); i++) {
+            Function function = functions.get(i);
+            out.putInt(entries.get(i)).putShort(u16(function.getFrameSize()))
+                    .putShort(u16(function.getParamCount()))
+                    .put((byte) function.getParamType().ordinal())
+                    .put((byte) function.getResultType().ordinal())
+                    .putShort((short) 0).putInt(firstSymbol[i]);
+        }
+
+        out.putInt(code.position());
+        out.put(code.array(), 0, code.position());
+
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), HawkcFormat.HEADER_SIZE, total - HawkcFormat.HEADER_SIZE);
+        out.putInt(HawkcFormat.CHECKSUM, (int) crc.getValue());
+        return out.array();
+    }
+
+    private void compileAll(Stmt[] statements) {
+        for (Stmt statement : statements) {
+            compile(statement);
+        }
+    }
+
+    private void compile(Stmt statement) {
+        if (statement instanceof AssignStmt) {
+            AssignStmt assign = (AssignStmt) statement;
+            compile(assign.getValue());
+            code(4).put(HawkcFormat.STORE).putShort(u16(assign.getSlot())).put(type(assign.getType()));
+        } else if (statement instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) statement;
+            int toElse = compileJumpUnless(ifStmt.getCondition());
+            compileAll(ifStmt.getThenBody());
+            code(5).put(HawkcFormat.JUMP);
+            int toEnd = code.position();
+            code.putInt(0);
+            code.putInt(toElse, code.position());
+            compileAll(ifStmt.getElseBody());
+            code.putInt(toEnd, code.position());
+        } else if (statement instanceof WhileStmt) {
+            WhileStmt whileStmt = (WhileStmt) statement;
+            int top = code.position();
+            int toEnd = compileJumpUnless(whileStmt.getCondition());
+            compileAll(whileStmt.getBody());
+            code(5).put(HawkcFormat.JUMP).putInt(top);
+            code.putInt(toEnd, code.position());
+        } else if (statement instanceof InputStmt) {
+            InputStmt input = (InputStmt) statement;
+            int[] slots = input.getSlots();
+            ValueType[] types = input.getTypes();
+            for (int i = 0; i < slots.length; i++) {
+                code(4).put(HawkcFormat.INPUT).putShort(u16(slots[i])).put(type(types[i]));
+            }
+        } else if (statement instanceof OutputStmt) {
+            OutputStmt output = (OutputStmt) statement;
+            Expr[] values = output.getValues();
+            ValueType[] types = output.getTypes();
+            for (int i = 0; i < values.length; i++) {
+                compile(values[i]);
+                code(2).put(HawkcFormat.OUTPUT).put(type(types[i]));
+            }
+            code(1).put(HawkcFormat.END_RECORD);
+        } else if (statement instanceof CallStmt) {
+            compile(((CallStmt) statement).getCall());
+            code(1).put(HawkcFormat.POP);
+        } else {
+            throw new IllegalArgumentException("Cannot compile " + statement.getClass().getSimpleName());
+        }
+    }
+
+    // Emit the comparison and its conditional jump, returning where to patch the target
+    private int compileJumpUnless(Condition condition) {
+        compile(condition.getLeft());
+        compile(condition.getRight());
+        byte comparison;
+        switch (condition.getOperator()) {
+            case EQUALS:
+                comparison = HawkcFormat.EQUALS;
+                break;
+            case NOT_EQUALS:
+                comparison = HawkcFormat.NOT_EQUALS;
+                break;
+            case GREATER_THAN:
+                comparison = HawkcFormat.GREATER_THAN;
+                break;
+            default:
+                comparison = HawkcFormat.LESS_THAN;
+                break;
+        }
+        code(6).put(HawkcFormat.JUMP_UNLESS).put(comparison);
+        int patch = code.position();
+        code.putInt(0);
+        return patch;
+    }
+
+    private void compile(Expr expr) {
+        if (expr instanceof NumExpr) {
+            code(3).put(HawkcFormat.CONST).putShort(u16(constant(((NumExpr) expr).getValue())));
+        } else if (expr instanceof VarExpr) {
+            code(3).put(HawkcFormat.LOAD).putShort(u16(((VarExpr) expr).getSlot()));
+        } else if (expr instanceof BinaryExpr) {
+            BinaryExpr binary = (BinaryExpr) expr;
+            compile(binary.getLeft());
+            compile(binary.getRight());
+            switch (binary.getOperator()) {
+                case PLUS:
+                    code(1).put(HawkcFormat.ADD);
+                    break;
+                case MINUS:
+                    code(1).put(HawkcFormat.SUB);
+                    break;
+                case MULT:
+                    code(1).put(HawkcFormat.MUL);
+                    break;
+                default:
+                    code(1).put(HawkcFormat.DIV);
+                    break;
+            }
+        } else if (expr instanceof CoerceExpr) {
+            CoerceExpr coerce = (CoerceExpr) expr;
+            compile(coerce.getValue());
+            code(2).put(HawkcFormat.COERCE).put(type(coerce.getType()));
+        } else if (expr instanceof CallExpr) {
+            CallExpr call = (CallExpr) expr;
+            for (Expr argument : call.getArguments()) {
+                compile(argument);
+            }
+            code(3).put(HawkcFormat.CALL).putShort(u16(index(call.getFunction())));
+        } else if (expr instanceof StoreTempExpr) {
+            StoreTempExpr store = (StoreTempExpr) expr;
+            compile(store.getValue());
+            code(3).put(HawkcFormat.TEE).putShort(u16(store.getSlot()));
+        } else {
+            throw new IllegalArgumentException("Cannot compile " + expr.getClass().getSimpleName());
+        }
+    }
+
+    // Index of a literal in the constant pool, adding it on first use
+    private int constant(double value) {
+        return constantIndex.computeIfAbsent(Double.doubleToRawLongBits(value), bits -> {
+            constants.add(value);
+            return constants.size() - 1;
+        });
+    }
+
+    // Code buffer with room for n more bytes
+    private ByteBuffer code(int n) {
+        if (code.remaining() < n) {
+            ByteBuffer grown = ByteBuffer.allocate(code.capacity() * 2);
+            code.flip();
+            code = grown.put(code);
+        }
+        return code;
+    }
+
+    private static byte type(ValueType type) {
+        return (byte) type.ordinal();
+    }
+
+    private static short u16(int value) {
+        if (value < 0 || value > 0xFFFF) {
+            throw new IllegalArgumentException("Value " + value + " does not fit the .hawkc format");
+        }
+        return (short) value;
+    }
+}
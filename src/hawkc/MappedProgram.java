@@ -0,0 +1,276 @@
+package hawkc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import ast.ValueType;
+import runtime.Budget;
+import runtime.BudgetExceededException;
+import runtime.Executable;
+import runtime.Execution;
+import runtime.ExecutionResult;
+import runtime.NumberInput;
+import runtime.NumberOutput;
+
+/**
+ * Program loaded from a .hawkc file.
+ * The file is memory-mapped and instructions, constants and function records are read
+ * straight out of the mapping while running; loading only checks the header and checksum.
+ * Instances are immutable and can be run from many threads at once.
+ */
+
+public final class MappedProgram implements Executable {
+    private static final ValueType[] TYPES = ValueType.values();
+
+    private final ByteBuffer image;
+    private final int constants;
+    private final int functions;
+    private final int code;
+    private final int frameSize;
+
+    private MappedProgram(ByteBuffer image) throws IOException {
+        this.image = image;
+        if (image.limit() < HawkcFormat.HEADER_SIZE || image.getInt(0) != HawkcFormat.MAGIC) {
+            throw new IOException("Invalid .hawkc file: bad magic number");
+        }
+        int version = image.getShort(4) & 0xFFFF;
+        if (version != HawkcFormat.VERSION) {
+            throw new IOException("Invalid .hawkc file: unsupported version " + version);
+        }
+        long payload = image.getInt(HawkcFormat.PAYLOAD_LENGTH) & 0xFFFFFFFFL;
+        if (payload != image.limit() - HawkcFormat.HEADER_SIZE) {
+            throw new IOException("Invalid .hawkc file: expected " + payload + " payload bytes but found " +
+                    (image.limit() - HawkcFormat.HEADER_SIZE));
+        }
+        this.constants = image.getInt(HawkcFormat.CONSTANTS) + 4;
+        this.functions = image.getInt(HawkcFormat.FUNCTIONS) + 4;
+        this.code = image.getInt(HawkcFormat.CODE) + 4;
+        this.frameSize = image.getInt(HawkcFormat.MAIN_FRAME_SIZE);
+    }
+
+    // Map a .hawkc file, verifying its checksum
+    public static MappedProgram load(Path path) throws IOException {
+        return load(path, true);
+    }
+
+    // Map a .hawkc file; skipping verification avoids touching every page up front
+    public static MappedProgram load(Path path, boolean verify) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+            return wrap(mapped, verify);
+        }
+    }
+
+    // Use .hawkc bytes already in memory
+    public static MappedProgram wrap(ByteBuffer image, boolean verify) throws IOException {
+        MappedProgram program = new MappedProgram(image.slice());
+        if (verify) {
+            program.verify();
+        }
+        return program;
+    }
+
+    // Check the stored CRC32 against the payload
+    public void verify() throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer payload = image.duplicate();
+        payload.position(HawkcFormat.HEADER_SIZE);
+        crc.update(payload);
+        if ((int) crc.getValue() != image.getInt(HawkcFormat.CHECKSUM)) {
+            throw new IOException("Invalid .hawkc file: checksum mismatch");
+        }
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    // Name of a symbol, by index into the symbol table (main program slots come first)
+    public String getSymbolName(int index) {
+        int symbols = image.getInt(HawkcFormat.SYMBOLS) + 4;
+        int nameOffset = image.getInt(symbols + index * HawkcFormat.SYMBOL_SIZE);
+        byte[] name = new byte[image.getShort(nameOffset) & 0xFFFF];
+        image.get(nameOffset + 2, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    public ValueType getSymbolType(int index) {
+        int symbols = image.getInt(HawkcFormat.SYMBOLS) + 4;
+        return TYPES[image.get(symbols + index * HawkcFormat.SYMBOL_SIZE + 4)];
+    }
+
+    @Override
+    public ExecutionResult run(NumberInput input, NumberOutput output, Budget budget) throws IOException {
+        Execution execution = new Execution(frameSize, input, output, budget);
+        try {
+            new Machine(execution).interpret(0);
+            return execution.finish(ExecutionResult.Status.COMPLETED);
+        } catch (BudgetExceededException e) {
+            return execution.finish(e.getStatus());
+        } catch (StackOverflowError e) {
+            throw execution.stackOverflow();
+        } finally {
+            execution.endRun();
+        }
+    }
+
+    // Operand stack of one run
+    private final class Machine {
+        private final Execution execution;
+        private double[] stack = new double[64];
+        private int sp;
+
+        Machine(Execution execution) {
+            this.execution = execution;
+        }
+
+        private void push(double value) {
+            if (sp == stack.length) {
+                stack = Arrays.copyOf(stack, sp * 2);
+            }
+            stack[sp++] = value;
+        }
+
+        // Run instructions from pc until HALT or RETURN
+        void interpret(int pc) throws IOException {
+            ByteBuffer image = MappedProgram.this.image;
+            int base = code;
+            while (true) {
+                byte op = image.get(base + pc);
+                switch (op) {
+                    case HawkcFormat.CONST:
+                        push(image.getDouble(constants + (image.getShort(base + pc + 1) & 0xFFFF) * Double.BYTES));
+                        pc += 3;
+                        break;
+                    case HawkcFormat.LOAD:
+                        push(execution.get(image.getShort(base + pc + 1) & 0xFFFF));
+                        pc += 3;
+                        break;
+                    case HawkcFormat.STORE:
+                        execution.set(image.getShort(base + pc + 1) & 0xFFFF,
+                                TYPES[image.get(base + pc + 3)].coerce(stack[--sp]));
+                        pc += 4;
+                        break;
+                    case HawkcFormat.ADD:
+                        sp--;
+                        stack[sp - 1] += stack[sp];
+                        pc++;
+                        break;
+                    case HawkcFormat.SUB:
+                        sp--;
+                        stack[sp - 1] -= stack[sp];
+                        pc++;
+                        break;
+                    case HawkcFormat.MUL:
+                        sp--;
+                        stack[sp - 1] *= stack[sp];
+                        pc++;
+                        break;
+                    case HawkcFormat.DIV:
+                        sp--;
+                        stack[sp - 1] /= stack[sp];
+                        pc++;
+                        break;
+                    case HawkcFormat.COERCE:
+                        stack[sp - 1] = TYPES[image.get(base + pc + 1)].coerce(stack[sp - 1]);
+                        pc += 2;
+                        break;
+                    case HawkcFormat.JUMP: {
+                        int target = image.getInt(base + pc + 1);
+                        if (target < pc) {
+                            // Loop back-edge
+                            execution.step();
+                        }
+                        pc = target;
+                        break;
+                    }
+                    case HawkcFormat.JUMP_UNLESS:
+                        sp -= 2;
+                        if (compare(image.get(base + pc + 1), stack[sp], stack[sp + 1])) {
+                            pc += 6;
+                        } else {
+                            pc = image.getInt(base + pc + 2);
+                        }
+                        break;
+                    case HawkcFormat.INPUT:
+                        execution.set(image.getShort(base + pc + 1) & 0xFFFF,
+                                TYPES[image.get(base + pc + 3)].coerce(execution.getInput().read()));
+                        pc += 4;
+                        break;
+                    case HawkcFormat.OUTPUT:
+                        TYPES[image.get(base + pc + 1)].write(execution.getOutput(), stack[--sp]);
+                        pc += 2;
+                        break;
+                    case HawkcFormat.END_RECORD:
+                        execution.getOutput().endRecord();
+                        execution.checkOutput();
+                        pc++;
+                        break;
+                    case HawkcFormat.CALL:
+                        call(image.getShort(base + pc + 1) & 0xFFFF);
+                        pc += 3;
+                        break;
+                    case HawkcFormat.TEE:
+                        execution.set(image.getShort(base + pc + 1) & 0xFFFF, stack[sp - 1]);
+                        pc += 3;
+                        break;
+                    case HawkcFormat.POP:
+                        sp--;
+                        pc++;
+                        break;
+                    case HawkcFormat.RETURN:
+                    case HawkcFormat.HALT:
+                        return;
+                    default:
+                        throw new IOException("Invalid .hawkc file: bad opcode " + op + " at pc " + pc);
+                }
+            }
+        }
+
+        // Pop the arguments into a new frame, run the function and push its result
+        private void call(int index) throws IOException {
+            execution.step();
+            int record = functions + index * HawkcFormat.FUNCTION_SIZE;
+            int entry = image.getInt(record);
+            int size = image.getShort(record + 4) & 0xFFFF;
+            int params = image.getShort(record + 6) & 0xFFFF;
+            ValueType paramType = TYPES[image.get(record + 8)];
+
+            int frame = execution.push(size);
+            sp -= params;
+            for (int i = 0; i < params; i++) {
+                execution.setAt(frame, i, paramType.coerce(stack[sp + i]));
+            }
+            int caller = execution.enter(frame);
+            try {
+                if (execution.needsNewStack()) {
+                    execution.runOnNewStack(() -> interpret(entry));
+                } else {
+                    interpret(entry);
+                }
+            } finally {
+                execution.leave(caller, frame);
+            }
+        }
+
+        private boolean compare(byte comparison, double a, double b) {
+            switch (comparison) {
+                case HawkcFormat.EQUALS:
+                    return a == b;
+                case HawkcFormat.NOT_EQUALS:
+                    return a != b;
+                case HawkcFormat.GREATER_THAN:
+                    return a > b;
+                default:
+                    return a < b;
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ast.AssignStmt;
+import ast.BinaryExpr;
+import ast.CallExpr;
+import ast.CallStmt;
+import ast.CoerceExpr;
+import ast.Condition;
+import ast.Expr;
+import ast.IfStmt;
+import ast.OutputStmt;
+import ast.Stmt;
+import ast.StoreTempExpr;
+import ast.WhileStmt;
+
+/**
+ * Common subexpression elimination within a statement.
+ * Thanks to ExprFactory a repeated subexpression is the same node, so repeats are found
+ * by identity. Inside one statement no variable can change, so the first evaluation of a
+ * repeated call-free node is kept in a temporary slot (StoreTempExpr) and the later
+ * occurrences just read that slot. Temporaries are placed after the frame's declared
+ * variables and reused by every statement of the frame. Rewritten nodes come from the
+ * factory as well, so statements that repeat the same shape still share one tree.
+ */
+
+class CommonSubexpressions {
+    private static final String TEMP_PREFIX = "$t";
+
+    private final ExprFactory factory;
+    private final int firstTemp;
+    private int tempCount;
+
+    // Per statement state
+    private Map<Expr, Integer> occurrences = new IdentityHashMap<>();
+    private Map<Expr, Integer> temps = new IdentityHashMap<>();
+    private Map<Expr, Boolean> pure = new IdentityHashMap<>();
+
+    // firstTemp is the frame size before temporaries
+    CommonSubexpressions(ExprFactory factory, int firstTemp) {
+        this.factory = factory;
+        this.firstTemp = firstTemp;
+    }
+
+    // Names of the temporary slots added, to append to the frame
+    String[] getTempNames() {
+        String[] names = new String[tempCount];
+        for (int i = 0; i < tempCount; i++) {
+            names[i] = TEMP_PREFIX + i;
+        }
+        return names;
+    }
+
+    // Rewrite a statement section
+    List<Stmt> rewrite(List<Stmt> statements) {
+        List<Stmt> rewritten = new ArrayList<>(statements.size());
+        for (Stmt statement : statements) {
+            rewritten.add(rewrite(statement));
+        }
+        return rewritten;
+    }
+
+    private Stmt[] rewrite(Stmt[] statements) {
+        Stmt[] rewritten = new Stmt[statements.length];
+        for (int i = 0; i < statements.length; i++) {
+            rewritten[i] = rewrite(statements[i]);
+        }
+        return rewritten;
+    }
+
+    private Stmt rewrite(Stmt statement) {
+        occurrences.clear();
+        temps.clear();
+
+        if (statement instanceof AssignStmt) {
+            AssignStmt assign = (AssignStmt) statement;
+            count(assign.getValue());
+            Expr value = replace(assign.getValue());
+            return (value == assign.getValue()) ? statement
+                    : new AssignStmt(assign.getLine(), assign.getSlot(), assign.getType(), value);
+        } else if (statement instanceof IfStmt) {
+            IfStmt ifStmt = (IfStmt) statement;
+            Condition condition = rewrite(ifStmt.getCondition());
+            return new IfStmt(ifStmt.getLine(), condition,
+                    rewrite(ifStmt.getThenBody()), rewrite(ifStmt.getElseBody()));
+        } else if (statement instanceof WhileStmt) {
+            WhileStmt whileStmt = (WhileStmt) statement;
+            Condition condition = rewrite(whileStmt.getCondition());
+            return new WhileStmt(whileStmt.getLine(), condition, rewrite(whileStmt.getBody()));
+        } else if (statement instanceof OutputStmt) {
+            OutputStmt output = (OutputStmt) statement;
+            Expr[] values = output.getValues();
+            for (Expr value : values) {
+                count(value);
+            }
+            boolean changed = false;
+            for (int i = 0; i < values.length; i++) {
+                Expr value = replace(values[i]);
+                changed |= value != values[i];
+                values[i] = value;
+            }
+            return changed ? new OutputStmt(output.getLine(), values, output.getTypes()) : statement;
+        } else if (statement instanceof CallStmt) {
+            CallStmt call = (CallStmt) statement;
+            count(call.getCall());
+            Expr value = replace(call.getCall());
+            return (value == call.getCall()) ? statement : new CallStmt(call.getLine(), value);
+        }
+        return statement;
+    }
+
+    // Both sides of a comparison count as one statement
+    private Condition rewrite(Condition condition) {
+        occurrences.clear();
+        temps.clear();
+        count(condition.getLeft());
+        count(condition.getRight());
+        Expr left = replace(condition.getLeft());
+        Expr right = replace(condition.getRight());
+        return (left == condition.getLeft() && right == condition.getRight()) ? condition
+                : new Condition(condition.getOperator(), left, right);
+    }
+
+    // Count occurrences; the inside of a repeat is not counted again since it will not be evaluated again
+    private void count(Expr expr) {
+        if (occurrences.merge(expr, 1, Integer::sum) > 1) {
+            return;
+        }
+        if (expr instanceof BinaryExpr) {
+            count(((BinaryExpr) expr).getLeft());
+            count(((BinaryExpr) expr).getRight());
+        } else if (expr instanceof CoerceExpr) {
+            count(((CoerceExpr) expr).getValue());
+        } else if (expr instanceof CallExpr) {
+            for (Expr argument : ((CallExpr) expr).getArguments()) {
+                count(argument);
+            }
+        }
+    }
+
+    // Rebuild expr in evaluation order, storing the first occurrence of each repeat
+    private Expr replace(Expr expr) {
+        boolean repeated = (expr instanceof BinaryExpr || expr instanceof CoerceExpr) &&
+                factory.isShared(expr) && occurrences.get(expr) > 1 && isPure(expr);
+        if (repeated) {
+            Integer temp = temps.get(expr);
+            if (temp != null) {
+                return factory.var(TEMP_PREFIX + temp, firstTemp + temp);
+            }
+        }
+
+        Expr rebuilt = expr;
+        if (expr instanceof BinaryExpr) {
+            BinaryExpr binary = (BinaryExpr) expr;
+            Expr left = replace(binary.getLeft());
+            Expr right = replace(binary.getRight());
+            if (left != binary.getLeft() || right != binary.getRight()) {
+                rebuilt = factory.binary(binary.getOperator(), left, right);
+            }
+        } else if (expr instanceof CoerceExpr) {
+            CoerceExpr coerce = (CoerceExpr) expr;
+            Expr value = replace(coerce.getValue());
+            if (value != coerce.getValue()) {
+                rebuilt = factory.coerce(coerce.getType(), value);
+            }
+        } else if (expr instanceof CallExpr) {
+            CallExpr call = (CallExpr) expr;
+            Expr[] arguments = call.getArguments();
+            boolean changed = false;
+            for (int i = 0; i < arguments.length; i++) {
+                Expr argument = replace(arguments[i]);
+                changed |= argument != arguments[i];
+                arguments[i] = argument;
+            }
+            if (changed) {
+                rebuilt = factory.call(call.getFunction(), arguments);
+            }
+        }
+
+        if (repeated) {
+            int temp = temps.size();
+            temps.put(expr, temp);
+            tempCount = Math.max(tempCount, temp + 1);
+            return factory.storeTemp(firstTemp + temp, rebuilt);
+        }
+        return rebuilt;
+    }
+
+    // Calls may do I/O, so only call-free nodes can be evaluated once instead of twice
+    private boolean isPure(Expr expr) {
+        Boolean known = pure.get(expr);
+        if (known != null) {
+            return known;
+        }
+        boolean result;
+        if (expr instanceof BinaryExpr) {
+            result = isPure(((BinaryExpr) expr).getLeft()) && isPure(((BinaryExpr) expr).getRight());
+        } else if (expr instanceof CoerceExpr) {
+            result = isPure(((CoerceExpr) expr).getValue());
+        } else {
+            result = !(expr instanceof CallExpr) && !(expr instanceof StoreTempExpr);
+        }
+        pure.put(expr, result);
+        return result;
+    }
+}
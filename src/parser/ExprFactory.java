@@ -0,0 +1,268 @@
+package parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import ast.AssignStmt;
+import ast.BinaryExpr;
+import ast.CallExpr;
+import ast.CallStmt;
+import ast.CoerceExpr;
+import ast.Condition;
+import ast.Expr;
+import ast.Function;
+import ast.IfStmt;
+import ast.NumExpr;
+import ast.OutputStmt;
+import ast.Program;
+import ast.Stmt;
+import ast.StoreTempExpr;
+import ast.ValueType;
+import ast.VarExpr;
+import ast.WhileStmt;
+import scanner.TokenType;
+
+/**
+ * Hash-consing factory for expression nodes.
+ * Asking twice for the same shape returns the same node, so repeated subexpressions such
+ * as 'x * y + z' become one shared node and the expressions of a program form a DAG.
+ * Children are already shared, which lets node identity stand in for deep equality.
+ * The factory also counts how many times each node was handed out, which later passes
+ * use to find common subexpressions.
+ */
+
+public class ExprFactory {
+    // Rough shallow sizes (compressed oops) used for the sharing report
+    private static final int NODE_BYTES = 24;
+    private static final int ARRAY_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    private Map<Key, Expr> nodes = new HashMap<>();
+    private Map<Expr, Integer> useCounts = new IdentityHashMap<>();
+
+    // Identity of a node: its kind, scalar fields and (already shared) children
+    private static final class Key {
+        private final int kind;
+        private final long bits;
+        private final Object a;
+        private final Object b;
+        private final Object[] rest;
+
+        Key(int kind, long bits, Object a, Object b, Object[] rest) {
+            this.kind = kind;
+            this.bits = bits;
+            this.a = a;
+            this.b = b;
+            this.rest = rest;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            if (kind != key.kind || bits != key.bits || a != key.a && !(a instanceof String && a.equals(key.a)) ||
+                    b != key.b) {
+                return false;
+            }
+            if (rest == key.rest) {
+                return true;
+            }
+            if (rest == null || key.rest == null || rest.length != key.rest.length) {
+                return false;
+            }
+            for (int i = 0; i < rest.length; i++) {
+                if (rest[i] != key.rest[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = kind * 31 + Long.hashCode(bits);
+            hash = hash * 31 + (a instanceof String ? a.hashCode() : System.identityHashCode(a));
+            hash = hash * 31 + System.identityHashCode(b);
+            if (rest != null) {
+                for (Object child : rest) {
+                    hash = hash * 31 + System.identityHashCode(child);
+                }
+            }
+            return hash;
+        }
+    }
+
+    // Numeric literal
+    public Expr num(double value) {
+        return intern(new Key(0, Double.doubleToRawLongBits(value), null, null, null),
+                () -> new NumExpr(value));
+    }
+
+    // Variable read
+    public Expr var(String name, int slot) {
+        return intern(new Key(1, slot, name, null, null), () -> new VarExpr(name, slot));
+    }
+
+    // Arithmetic node
+    public Expr binary(TokenType operator, Expr left, Expr right) {
+        return intern(new Key(2, operator.ordinal(), left, right, null),
+                () -> new BinaryExpr(operator, left, right));
+    }
+
+    // Narrowing node
+    public Expr coerce(ValueType type, Expr value) {
+        return intern(new Key(3, type.ordinal(), value, null, null),
+                () -> new CoerceExpr(type, value));
+    }
+
+    // Call node; shared like the others since sharing a node never merges its evaluations
+    public Expr call(Function function, Expr[] arguments) {
+        Expr[] copy = arguments.clone();
+        return intern(new Key(4, 0, function, null, copy), () -> new CallExpr(function, copy));
+    }
+
+    // First evaluation of a common subexpression, kept in a temporary slot
+    public Expr storeTemp(int slot, Expr value) {
+        return intern(new Key(5, slot, value, null, null), () -> new StoreTempExpr(slot, value));
+    }
+
+    private Expr intern(Key key, Supplier<Expr> create) {
+        Expr node = nodes.get(key);
+        if (node == null) {
+            node = create.get();
+            nodes.put(key, node);
+        }
+        useCounts.merge(node, 1, Integer::sum);
+        return node;
+    }
+
+    // Times this node was handed out, i.e. how many places in the program refer to it
+    public int getUseCount(Expr expr) {
+        return useCounts.getOrDefault(expr, 0);
+    }
+
+    // Check if node is referred to from more than one place
+    public boolean isShared(Expr expr) {
+        return getUseCount(expr) > 1;
+    }
+
+    /**
+     * One line summary of the memory saved by sharing, measured on the finished program
+     * (after common subexpression elimination) and the functions it can call: every
+     * reference to a node counts as a node of the unshared tree, every distinct node once.
+     */
+    public String getSharingReport(Program program) {
+        Sharing sharing = new Sharing();
+        sharing.add(program.getBody());
+        // Functions of imported units are only reachable through calls
+        Deque<Function> functions = new ArrayDeque<>(Arrays.asList(program.getFunctions()));
+        Map<Function, Boolean> seen = new IdentityHashMap<>();
+        while (true) {
+            functions.addAll(sharing.takeCalled());
+            Function function = functions.poll();
+            if (function == null) {
+                break;
+            }
+            if (seen.put(function, true) == null) {
+                sharing.add(function.getBody());
+            }
+        }
+
+        long saved = sharing.treeBytes - sharing.uniqueBytes;
+        double percent = (sharing.treeBytes == 0) ? 0 : saved * 100.0 / sharing.treeBytes;
+        return "Expression nodes: " + sharing.treeNodes + " in tree, " + sharing.unique.size() + " unique; ~" +
+                sharing.treeBytes + " -> ~" + sharing.uniqueBytes + " bytes (" +
+                String.format("%.1f", percent) + "% saved)";
+    }
+
+    // Tallies of one report; subtree totals are memoised so shared subtrees are walked once
+    private static final class Sharing {
+        private final Map<Expr, long[]> unique = new IdentityHashMap<>();
+        private final List<Function> called = new ArrayList<>();
+        private long treeNodes;
+        private long treeBytes;
+        private long uniqueBytes;
+
+        void add(Stmt[] statements) {
+            for (Stmt statement : statements) {
+                if (statement instanceof AssignStmt) {
+                    add(((AssignStmt) statement).getValue());
+                } else if (statement instanceof IfStmt) {
+                    IfStmt ifStmt = (IfStmt) statement;
+                    add(ifStmt.getCondition());
+                    add(ifStmt.getThenBody());
+                    add(ifStmt.getElseBody());
+                } else if (statement instanceof WhileStmt) {
+                    WhileStmt whileStmt = (WhileStmt) statement;
+                    add(whileStmt.getCondition());
+                    add(whileStmt.getBody());
+                } else if (statement instanceof OutputStmt) {
+                    for (Expr value : ((OutputStmt) statement).getValues()) {
+                        add(value);
+                    }
+                } else if (statement instanceof CallStmt) {
+                    add(((CallStmt) statement).getCall());
+                }
+            }
+        }
+
+        private void add(Condition condition) {
+            add(condition.getLeft());
+            add(condition.getRight());
+        }
+
+        private void add(Expr expr) {
+            long[] totals = measure(expr);
+            treeNodes += totals[0];
+            treeBytes += totals[1];
+        }
+
+        // Nodes and bytes of the unshared subtree under expr
+        private long[] measure(Expr expr) {
+            long[] totals = unique.get(expr);
+            if (totals != null) {
+                return totals;
+            }
+            long bytes = NODE_BYTES;
+            Expr[] children;
+            if (expr instanceof BinaryExpr) {
+                children = new Expr[] {((BinaryExpr) expr).getLeft(), ((BinaryExpr) expr).getRight()};
+            } else if (expr instanceof CoerceExpr) {
+                children = new Expr[] {((CoerceExpr) expr).getValue()};
+            } else if (expr instanceof StoreTempExpr) {
+                children = new Expr[] {((StoreTempExpr) expr).getValue()};
+            } else if (expr instanceof CallExpr) {
+                children = ((CallExpr) expr).getArguments();
+                bytes += ARRAY_BYTES + REFERENCE_BYTES * children.length;
+                called.add(((CallExpr) expr).getFunction());
+            } else {
+                children = new Expr[0];
+            }
+            uniqueBytes += bytes;
+            totals = new long[] {1, bytes};
+            for (Expr child : children) {
+                long[] sub = measure(child);
+                totals[0] += sub[0];
+                totals[1] += sub[1];
+            }
+            unique.put(expr, totals);
+            return totals;
+        }
+
+        // Functions called from the statements added since the last take
+        List<Function> takeCalled() {
+            List<Function> taken = new ArrayList<>(called);
+            called.clear();
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package parser;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ast.Function;
+
+/**
+ * FunctionTable for Hawk programming language.
+ * Stores function definitions by name so calls can be bound at parse time.
+ */
+
+public class FunctionTable {
+    private Map<String, Function> functions = new LinkedHashMap<>();
+
+    // Add function to function table
+    public void add(Function function, int line) throws ParseException {
+        if (functions.containsKey(function.getName())) {
+            throw new ParseException("Error at line " + line +
+                    ": Redefinition of function '" + function.getName() + "'");
+        }
+        functions.put(function.getName(), function);
+    }
+
+    // Resolve a call target, checking it exists and takes that many arguments
+    public Function resolve(String name, int argumentCount, int line) throws ParseException {
+        Function function = functions.get(name);
+        if (function == null) {
+            throw new ParseException("Error at line " + line +
+                    ": Undefined function '" + name + "'");
+        }
+        if (function.getParamCount() != argumentCount) {
+            throw new ParseException("Error at line " + line + ": Function '" + name + "' expects " +
+                    function.getParamCount() + " argument(s) but got " + argumentCount);
+        }
+        return function;
+    }
+
+    // Check if name is a defined function
+    public boolean contains(String name) {
+        return functions.containsKey(name);
+    }
+
+    // Return number of functions in the table
+    public int size() {
+        return functions.size();
+    }
+
+    // Return functions in definition order
+    public Function[] getFunctions() {
+        return functions.values().toArray(new Function[0]);
+    }
+}
@@ -0,0 +1,120 @@
+package parser;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import ast.AssignStmt;
+import ast.BinaryExpr;
+import ast.CallExpr;
+import ast.CoerceExpr;
+import ast.Expr;
+import ast.Function;
+import ast.NumExpr;
+import ast.Stmt;
+import ast.StoreTempExpr;
+import ast.ValueType;
+import ast.VarExpr;
+
+/**
+ * Compile time inlining of small functions.
+ * A function qualifies when its whole body is a single 'f := EXPR;' whose expression
+ * only reads parameters and has at most MAX_NODES nodes. The call is then replaced by
+ * that expression with the arguments substituted for the parameters, built through the
+ * ExprFactory so inlined copies share nodes with the rest of the program.
+ * Bodies have already been through common subexpression elimination, so temporaries are
+ * looked through: a stored temporary becomes its value and later reads of it reuse that
+ * value, which hash-consing turns back into one shared node.
+ */
+
+class Inliner {
+    static final int MAX_NODES = 16;
+
+    private Inliner() {
+    }
+
+    // Return the inlined expression, or null if the call has to stay a call
+    static Expr inline(ExprFactory factory, Function function, Expr[] arguments, ValueType[] argumentTypes) {
+        Stmt[] body = function.getBody();
+        if (body.length != 1 || !(body[0] instanceof AssignStmt)) {
+            return null;
+        }
+        AssignStmt assign = (AssignStmt) body[0];
+        if (assign.getSlot() != function.getResultSlot() ||
+                count(assign.getValue(), function.getParamCount(), new HashSet<>()) > MAX_NODES) {
+            return null;
+        }
+
+        // Arguments are narrowed to the parameter type, as a real call would do
+        ValueType paramType = function.getParamType();
+        Expr[] params = new Expr[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            params[i] = (paramType == ValueType.DOUBLE || paramType == argumentTypes[i])
+                    ? arguments[i] : factory.coerce(paramType, arguments[i]);
+        }
+
+        Expr inlined = substitute(factory, assign.getValue(), params, new HashMap<>());
+        if (function.getResultType() != ValueType.DOUBLE) {
+            inlined = factory.coerce(function.getResultType(), inlined);
+        }
+        return inlined;
+    }
+
+    // Count nodes, or return a value above MAX_NODES if expr reads a non-parameter.
+    // stored holds the temporaries already stored, in evaluation order.
+    private static int count(Expr expr, int paramCount, Set<Integer> stored) {
+        if (expr instanceof NumExpr) {
+            return 1;
+        } else if (expr instanceof VarExpr) {
+            int slot = ((VarExpr) expr).getSlot();
+            return (slot < paramCount || stored.contains(slot)) ? 1 : MAX_NODES + 1;
+        } else if (expr instanceof BinaryExpr) {
+            BinaryExpr binary = (BinaryExpr) expr;
+            return 1 + count(binary.getLeft(), paramCount, stored) + count(binary.getRight(), paramCount, stored);
+        } else if (expr instanceof CoerceExpr) {
+            return 1 + count(((CoerceExpr) expr).getValue(), paramCount, stored);
+        } else if (expr instanceof StoreTempExpr) {
+            StoreTempExpr store = (StoreTempExpr) expr;
+            int total = count(store.getValue(), paramCount, stored);
+            stored.add(store.getSlot());
+            return total;
+        } else if (expr instanceof CallExpr) {
+            int total = 1;
+            for (Expr argument : ((CallExpr) expr).getArguments()) {
+                total += count(argument, paramCount, stored);
+            }
+            return total;
+        }
+        return MAX_NODES + 1;
+    }
+
+    // Copy expr with parameter reads replaced by the given expressions and temporaries
+    // replaced by the values stored in them
+    private static Expr substitute(ExprFactory factory, Expr expr, Expr[] params, Map<Integer, Expr> temps) {
+        if (expr instanceof VarExpr) {
+            int slot = ((VarExpr) expr).getSlot();
+            return (slot < params.length) ? params[slot] : temps.get(slot);
+        } else if (expr instanceof BinaryExpr) {
+            BinaryExpr binary = (BinaryExpr) expr;
+            Expr left = substitute(factory, binary.getLeft(), params, temps);
+            return factory.binary(binary.getOperator(), left, substitute(factory, binary.getRight(), params, temps));
+        } else if (expr instanceof CoerceExpr) {
+            CoerceExpr coerce = (CoerceExpr) expr;
+            return factory.coerce(coerce.getType(), substitute(factory, coerce.getValue(), params, temps));
+        } else if (expr instanceof StoreTempExpr) {
+            StoreTempExpr store = (StoreTempExpr) expr;
+            Expr value = substitute(factory, store.getValue(), params, temps);
+            temps.put(store.getSlot(), value);
+            return value;
+        } else if (expr instanceof CallExpr) {
+            CallExpr call = (CallExpr) expr;
+            Expr[] arguments = call.getArguments();
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = substitute(factory, arguments[i], params, temps);
+            }
+            return factory.call(call.getFunction(), arguments);
+        }
+        return expr;
+    }
+}
@@ -2,29 +2,88 @@ package parser;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+
+import ast.AssignStmt;
+import ast.CallStmt;
+import ast.Condition;
+import ast.Expr;
+import ast.Function;
+import ast.IfStmt;
+import ast.InputStmt;
+import ast.OutputStmt;
+import ast.Program;
+import ast.Stmt;
+import ast.Unit;
+import ast.ValueType;
+import ast.WhileStmt;
 import scanner.Scanner;
 import scanner.Token;
 import scanner.TokenType;
 
 /**
  * Parser for Hawk programming language.
- * Checks for errors according to provided grammar rules.
+ * Checks for errors according to provided grammar rules and builds the
+ * executable Program tree while doing so.
  */
 
 public class Parser {
     private Scanner scanner;
     private Token currentToken;
     private SymbolTable symbolTable;
+    private FunctionTable functionTable = new FunctionTable();
+    private ExprFactory exprFactory = new ExprFactory();
+
+    // Function whose body is being parsed, and functions seen calling themselves
+    private Function currentFunction;
+    private Set<String> recursiveFunctions = new HashSet<>();
+
+    // Print each grammar rule as it is entered
+    private boolean trace;
+
+    // Compiled units that 'import' may name
+    private Map<String, Unit> units;
 
-    // Constructor for the parser
+    // Constructor for the parser, tracing rules to stdout
     public Parser(Scanner scanner) throws IOException {
+        this(scanner, true);
+    }
+
+    // Constructor for the parser, with rule tracing on or off
+    public Parser(Scanner scanner, boolean trace) throws IOException {
+        this(scanner, trace, Collections.emptyMap());
+    }
+
+    // Constructor for the parser, resolving imports against already compiled units
+    public Parser(Scanner scanner, boolean trace, Map<String, Unit> units) throws IOException {
         this.scanner = scanner;
+        this.trace = trace;
+        this.units = units;
         this.currentToken = scanner.nextToken();
         this.symbolTable = scanner.getSymbolTable();
     }
 
+    private void trace(String rule) {
+        if (trace) {
+            System.out.println(rule);
+        }
+    }
+
+    // Return table of functions defined so far
+    public FunctionTable getFunctionTable() {
+        return functionTable;
+    }
+
+    // Return factory all expression nodes were built by, for its sharing statistics
+    public ExprFactory getExprFactory() {
+        return exprFactory;
+    }
+
     // Match currentToken with expected token type
     private void match(TokenType expectedType) throws ParseException, IOException {
         if (currentToken.getType() == expectedType) {
@@ -46,13 +105,18 @@ public class Parser {
     }
 
     // Rule 1:
-    public void parseProgram() throws ParseException, IOException {
-        System.out.println("PROGRAM");
+    public Program parseProgram() throws ParseException, IOException {
+        trace("PROGRAM");
 
         // Match PROGRAM keyword
         if (currentToken.getType() == TokenType.PROGRAM) {
             match(TokenType.PROGRAM);
 
+            // Check if IMPORTS
+            if (currentToken.getType() == TokenType.IMPORT) {
+                parseImports();
+            }
+
             // Check if DECL_SEC
             if (currentToken.getType() != TokenType.BEGIN) {
                 parseDeclSec();
@@ -62,33 +126,217 @@ public class Parser {
             match(TokenType.BEGIN);
 
             // Parse STMT_SEC
-            parseStmtSec();
+            List<Stmt> body = new ArrayList<>();
+            parseStmtSec(body);
 
             // Match END keyword (end;)
             match(TokenType.END);
             match(TokenType.SEMICOLON);
 
+            String[] names = symbolTable.getNames();
+            CommonSubexpressions cse = new CommonSubexpressions(exprFactory, names.length);
+            body = cse.rewrite(body);
+            return new Program(withTemps(names, cse), withTemps(frameTypes(names), cse),
+                    functionTable.getFunctions(), body.toArray(new Stmt[0]));
+
         } else {
             throw new ParseException("Error at line " + currentToken.getLine() +
                     " : Program must start with 'program' keyword");
         }
     }
 
+    // Rule 22: UNIT
+    // unit ID ; [IMPORTS] [DECL_SEC] end ;
+    public Unit parseUnit() throws ParseException, IOException {
+        trace("UNIT");
+
+        if (currentToken.getType() != TokenType.UNIT) {
+            throw new ParseException("Error at line " + currentToken.getLine() +
+                    " : Unit must start with 'unit' keyword");
+        }
+        match(TokenType.UNIT);
+        String name = currentToken.getLexeme();
+        match(TokenType.ID);
+        match(TokenType.SEMICOLON);
+
+        if (currentToken.getType() == TokenType.IMPORT) {
+            parseImports();
+        }
+
+        // Only what is declared after the imports is exported
+        int firstSymbol = symbolTable.size();
+        int firstFunction = functionTable.size();
+        if (currentToken.getType() != TokenType.END) {
+            parseDeclSec();
+        }
+        match(TokenType.END);
+        match(TokenType.SEMICOLON);
+
+        String[] allNames = symbolTable.getNames();
+        String[] names = new String[allNames.length - firstSymbol];
+        System.arraycopy(allNames, firstSymbol, names, 0, names.length);
+        Function[] allFunctions = functionTable.getFunctions();
+        Function[] functions = new Function[allFunctions.length - firstFunction];
+        System.arraycopy(allFunctions, firstFunction, functions, 0, functions.length);
+
+        return new Unit(name, names, frameTypes(names), functions);
+    }
+
+    // Rule 23: IMPORTS
+    // import ID_LIST ;
+    private void parseImports() throws ParseException, IOException {
+        trace("IMPORTS");
+
+        int line = currentToken.getLine();
+        match(TokenType.IMPORT);
+        List<String> imports = parseIdList();
+        match(TokenType.SEMICOLON);
+
+        for (String name : imports) {
+            Unit unit = units.get(name);
+            if (unit == null) {
+                throw new ParseException("Error at line " + line + ": Unknown unit '" + name + "'");
+            }
+            String[] names = unit.getNames();
+            ValueType[] types = unit.getTypes();
+            for (int i = 0; i < names.length; i++) {
+                symbolTable.add(names[i], types[i].getName(), line);
+            }
+            for (Function function : unit.getFunctions()) {
+                functionTable.add(function, line);
+            }
+        }
+    }
+
+    // Read only the header ('unit ID ;' or 'program', then any IMPORTS) without resolving it
+    public UnitHeader parseHeader() throws ParseException, IOException {
+        boolean unit = currentToken.getType() == TokenType.UNIT;
+        String name = null;
+        if (unit) {
+            match(TokenType.UNIT);
+            name = currentToken.getLexeme();
+            match(TokenType.ID);
+            match(TokenType.SEMICOLON);
+        } else {
+            match(TokenType.PROGRAM);
+        }
+
+        List<String> imports = new ArrayList<>();
+        if (currentToken.getType() == TokenType.IMPORT) {
+            match(TokenType.IMPORT);
+            imports = parseIdList();
+            match(TokenType.SEMICOLON);
+        }
+        return new UnitHeader(unit, name, imports);
+    }
+
+    // Declared types of the current symbol table, indexed by slot
+    private ValueType[] frameTypes(String[] names) {
+        ValueType[] types = new ValueType[names.length];
+        for (int i = 0; i < names.length; i++) {
+            types[i] = ValueType.of(symbolTable.getType(names[i]));
+        }
+        return types;
+    }
+
+    // Frame names and types extended with the temporaries used for common subexpressions
+    private String[] withTemps(String[] names, CommonSubexpressions cse) {
+        String[] temps = cse.getTempNames();
+        String[] all = Arrays.copyOf(names, names.length + temps.length);
+        System.arraycopy(temps, 0, all, names.length, temps.length);
+        return all;
+    }
+
+    private ValueType[] withTemps(ValueType[] types, CommonSubexpressions cse) {
+        ValueType[] all = Arrays.copyOf(types, types.length + cse.getTempNames().length);
+        Arrays.fill(all, types.length, all.length, ValueType.DOUBLE);
+        return all;
+    }
+
     // Rule 2:
     private void parseDeclSec() throws ParseException, IOException {
-        System.out.println("DECL_SEC");
+        trace("DECL_SEC");
 
-        parseDecl();
+        if (currentToken.getType() == TokenType.FUNCTION) {
+            parseFuncDef();
+        } else {
+            parseDecl();
+        }
 
         // Check for more declarations
-        if (currentToken.getType() == TokenType.ID) {
+        if (currentToken.getType() == TokenType.ID ||
+            currentToken.getType() == TokenType.FUNCTION) {
             parseDeclSec();
         }
     }
 
+    // Rule 20: FUNC_DEF
+    // function ID ( ID_LIST : TYPE ) : TYPE ; [DECL_SEC] begin STMT_SEC end ;
+    private void parseFuncDef() throws ParseException, IOException {
+        trace("FUNC_DEF");
+
+        int line = currentToken.getLine();
+        if (currentFunction != null) {
+            throw new ParseException("Error at line " + line +
+                    " : Function definitions cannot be nested");
+        }
+        match(TokenType.FUNCTION);
+
+        String name = currentToken.getLexeme();
+        match(TokenType.ID);
+        if (symbolTable.getSlot(name) >= 0) {
+            throw new ParseException("Error at line " + line +
+                    ": Function '" + name + "' has the same name as a variable");
+        }
+
+        match(TokenType.LPAREN);
+        List<String> params = parseIdList();
+        match(TokenType.COLON);
+        String paramType = parseType();
+        match(TokenType.RPAREN);
+        match(TokenType.COLON);
+        String resultType = parseType();
+        match(TokenType.SEMICOLON);
+
+        // Function gets its own scope: parameters, then the result variable, then locals
+        SymbolTable globals = symbolTable;
+        symbolTable = new SymbolTable();
+        for (String param : params) {
+            symbolTable.add(param, paramType, line);
+        }
+        symbolTable.add(name, resultType, line);
+
+        Function function = new Function(name, params.size(),
+                ValueType.of(paramType), ValueType.of(resultType));
+        functionTable.add(function, line);
+        currentFunction = function;
+
+        try {
+            if (currentToken.getType() != TokenType.BEGIN) {
+                parseDeclSec();
+            }
+            match(TokenType.BEGIN);
+            List<Stmt> body = new ArrayList<>();
+            parseStmtSec(body);
+            match(TokenType.END);
+            match(TokenType.SEMICOLON);
+
+            String[] names = symbolTable.getNames();
+            CommonSubexpressions cse = new CommonSubexpressions(exprFactory, names.length);
+            body = cse.rewrite(body);
+            function.define(withTemps(names, cse), withTemps(frameTypes(names), cse),
+                    body.toArray(new Stmt[0]));
+        } finally {
+            symbolTable = globals;
+            currentFunction = null;
+        }
+    }
+
     // Rule 3:
     private void parseDecl() throws ParseException, IOException {
-        System.out.println("DECL");
+        trace("DECL");
+
+        int line = currentToken.getLine();
 
         // Create list of identifiers for multiple same-line id declarations
         List<String> identifiers = parseIdList();
@@ -99,15 +347,19 @@ public class Parser {
 
         match(TokenType.SEMICOLON);
 
-        // Add identifiers to symbol table
+        // Add identifiers to symbol table; a variable may not take a function's name
         for (String id : identifiers) {
+            if (functionTable.contains(id)) {
+                throw new ParseException("Error at line " + line +
+                        ": Variable '" + id + "' has the same name as a function");
+            }
             symbolTable.add(id, type, scanner.getLine());
         }
     }
 
     // Rule 4:
     private List<String> parseIdList() throws ParseException, IOException {
-        System.out.println("ID_LIST");
+        trace("ID_LIST");
 
         List<String> identifiers = new ArrayList<>();
 
@@ -151,38 +403,37 @@ public class Parser {
     }
 
     // Rule 6: STMT_SEC
-    private void parseStmtSec() throws ParseException, IOException {
-        System.out.println("STMT_SEC");
+    // Loops rather than recursing per statement so long generated sections cannot overflow the stack
+    private void parseStmtSec(List<Stmt> statements) throws ParseException, IOException {
+        trace("STMT_SEC");
 
-        parseStmt();
+        statements.add(parseStmt());
 
         // Check for more statements
-        if (currentToken.getType() != TokenType.END &&
-            currentToken.getType() != TokenType.ELSE) {
-            parseStmtSec();
+        while (currentToken.getType() != TokenType.END &&
+               currentToken.getType() != TokenType.ELSE) {
+            trace("STMT_SEC");
+            statements.add(parseStmt());
         }
     }
 
     // Rule 7: STMT
-    private void parseStmt() throws ParseException, IOException {
-        System.out.println("STMT");
+    private Stmt parseStmt() throws ParseException, IOException {
+        trace("STMT");
 
         switch (currentToken.getType()) {
             case ID:
-                parseAssign();
-                break;
+                return parseAssign();
             case IF:
-                parseIfStmt();
-                break;
+                return parseIfStmt();
             case WHILE:
-                parseWhileStmt();
-                break;
+                return parseWhileStmt();
             case INPUT:
-                parseInput();
-                break;
+                return parseInput();
             case OUTPUT:
-                parseOutput();
-                break;
+                return parseOutput();
+            case CALL:
+                return parseCallStmt();
             default:
                 throw new ParseException("Error at line " + currentToken.getLine() +
                         " : Expected statement but found '" + currentToken.getLexeme() + "'");
@@ -190,17 +441,22 @@ public class Parser {
     }
 
     // Rule 8: ASSIGN
-    private void parseAssign() throws ParseException, IOException {
-        System.out.println("ASSIGN");
+    private Stmt parseAssign() throws ParseException, IOException {
+        trace("ASSIGN");
 
         if (currentToken.getType() == TokenType.ID) {
             // Check if id is declared
-            symbolTable.checkDeclared(currentToken.getLexeme(), currentToken.getLine());
+            String id = currentToken.getLexeme();
+            int line = currentToken.getLine();
+            symbolTable.checkDeclared(id, line);
 
             match(TokenType.ID);
             match(TokenType.ASSIGN);
-            parseExpr();
+            Expr value = parseExpr();
             match(TokenType.SEMICOLON);
+
+            return new AssignStmt(line, symbolTable.getSlot(id),
+                    ValueType.of(symbolTable.getType(id)), value);
         } else {
             throw new ParseException("Error at line " + currentToken.getLine() +
                     " : Expected identifier but found '" + currentToken.getLexeme() + "'");
@@ -208,129 +464,165 @@ public class Parser {
     }
 
     // Rule 9: IF_STMT
-    private void parseIfStmt() throws ParseException, IOException {
-        System.out.println("IF_STMT");
+    private Stmt parseIfStmt() throws ParseException, IOException {
+        trace("IF_STMT");
 
+        int line = currentToken.getLine();
         match(TokenType.IF);
-        parseComp();
+        Condition condition = parseComp();
         match(TokenType.THEN);
-        parseStmtSec();
+        List<Stmt> thenBody = new ArrayList<>();
+        parseStmtSec(thenBody);
 
+        List<Stmt> elseBody = new ArrayList<>();
         if (currentToken.getType() == TokenType.ELSE) {
             match(TokenType.ELSE);
-            parseStmtSec();
+            parseStmtSec(elseBody);
         }
 
         match(TokenType.END);
         match(TokenType.IF);
         match(TokenType.SEMICOLON);
+
+        return new IfStmt(line, condition, thenBody.toArray(new Stmt[0]), elseBody.toArray(new Stmt[0]));
     }
 
     // Rule 10: WHILESTMT
-    private void parseWhileStmt() throws ParseException, IOException {
-        System.out.println("WHILE_STMT");
+    private Stmt parseWhileStmt() throws ParseException, IOException {
+        trace("WHILE_STMT");
 
+        int line = currentToken.getLine();
         match(TokenType.WHILE);
-        parseComp();
+        Condition condition = parseComp();
         match(TokenType.LOOP);
-        parseStmtSec();
+        List<Stmt> body = new ArrayList<>();
+        parseStmtSec(body);
         match(TokenType.END);
         match(TokenType.LOOP);
         match(TokenType.SEMICOLON);
+
+        return new WhileStmt(line, condition, body.toArray(new Stmt[0]));
     }
 
     // Rule 11: INPUT
-    private void parseInput() throws ParseException, IOException {
-        System.out.println("INPUT");
+    private Stmt parseInput() throws ParseException, IOException {
+        trace("INPUT");
 
+        int line = currentToken.getLine();
         match(TokenType.INPUT);
 
         // Check if all id are declared
         List<String> identifiers = parseIdList();
-        for (String id : identifiers) {
+        int[] slots = new int[identifiers.size()];
+        ValueType[] types = new ValueType[identifiers.size()];
+        for (int i = 0; i < identifiers.size(); i++) {
+            String id = identifiers.get(i);
             symbolTable.checkDeclared(id, scanner.getLine());
+            slots[i] = symbolTable.getSlot(id);
+            types[i] = ValueType.of(symbolTable.getType(id));
         }
 
         match(TokenType.SEMICOLON);
+
+        return new InputStmt(line, slots, types);
     }
 
     // Rule 12: OUTPUT
-    private void parseOutput() throws ParseException, IOException {
-        System.out.println("OUTPUT");
+    private Stmt parseOutput() throws ParseException, IOException {
+        trace("OUTPUT");
 
+        int line = currentToken.getLine();
         match(TokenType.OUTPUT);
 
+        Expr[] values;
+        ValueType[] types;
         if (currentToken.getType() == TokenType.ID) {
             // Check if all id are declared
             List<String> identifiers = parseIdList();
-            for (String id : identifiers) {
+            values = new Expr[identifiers.size()];
+            types = new ValueType[identifiers.size()];
+            for (int i = 0; i < identifiers.size(); i++) {
+                String id = identifiers.get(i);
                 symbolTable.checkDeclared(id, scanner.getLine());
+                values[i] = exprFactory.var(id, symbolTable.getSlot(id));
+                types[i] = ValueType.of(symbolTable.getType(id));
             }
         } else if (currentToken.getType() == TokenType.NUM) {
+            String lexeme = currentToken.getLexeme();
             match(TokenType.NUM);
+            values = new Expr[] { exprFactory.num(Double.parseDouble(lexeme)) };
+            types = new ValueType[] { lexeme.indexOf('.') < 0 ? ValueType.INT : ValueType.DOUBLE };
         } else {
             throw new ParseException("Error at line " + currentToken.getLine() +
                     " : Expected identifier or number but found '" + currentToken.getLexeme() + "'");
         }
 
         match(TokenType.SEMICOLON);
+
+        return new OutputStmt(line, values, types);
     }
 
     // Rule 13: EXPR
-    private void parseExpr() throws ParseException, IOException {
-        System.out.println("EXPR");
+    // Operators are folded left to right so that a - b - c means (a - b) - c
+    private Expr parseExpr() throws ParseException, IOException {
+        trace("EXPR");
 
-        parseFactor();
+        Expr expr = parseFactor();
 
-        if (currentToken.getType() == TokenType.PLUS) {
-            match(TokenType.PLUS);
-            parseExpr();
-        } else if (currentToken.getType() == TokenType.MINUS) {
-            match(TokenType.MINUS);
-            parseExpr();
+        while (currentToken.getType() == TokenType.PLUS ||
+               currentToken.getType() == TokenType.MINUS) {
+            TokenType operator = currentToken.getType();
+            match(operator);
+            expr = exprFactory.binary(operator, expr, parseFactor());
         }
+        return expr;
     }
 
     // Rule 14: FACTOR
-    private void parseFactor() throws ParseException, IOException {
-        System.out.println("FACTOR");
+    private Expr parseFactor() throws ParseException, IOException {
+        trace("FACTOR");
 
-        parseOperand();
+        Expr expr = parseOperand();
 
-        if (currentToken.getType() == TokenType.MULT) {
-            match(TokenType.MULT);
-            parseFactor();
-        } else if (currentToken.getType() == TokenType.DIV) {
-            match(TokenType.DIV);
-            parseFactor();
+        while (currentToken.getType() == TokenType.MULT ||
+               currentToken.getType() == TokenType.DIV) {
+            TokenType operator = currentToken.getType();
+            match(operator);
+            expr = exprFactory.binary(operator, expr, parseOperand());
         }
+        return expr;
     }
 
     // Rule 15: OPERAND
-    private void parseOperand() throws ParseException, IOException {
-        System.out.println("OPERAND");
+    private Expr parseOperand() throws ParseException, IOException {
+        trace("OPERAND");
 
         if (currentToken.getType() == TokenType.NUM) {
+            String lexeme = currentToken.getLexeme();
             match(TokenType.NUM);
+            return exprFactory.num(Double.parseDouble(lexeme));
         } else if (currentToken.getType() == TokenType.ID) {
-            // Check if id is declared
-            symbolTable.checkDeclared(currentToken.getLexeme(), currentToken.getLine());
-
             // Store id in case it's part of a function call
             String idName = currentToken.getLexeme();
+            int line = currentToken.getLine();
             match(TokenType.ID);
 
             // Check if it's a function call
             if (currentToken.getType() == TokenType.LPAREN) {
                 // handle function call
-                parseFunCall(idName);
+                return parseFunCall(idName);
             }
+
+            // Check if id is declared
+            symbolTable.checkDeclared(idName, line);
+            return exprFactory.var(idName, symbolTable.getSlot(idName));
         } else if (currentToken.getType() == TokenType.LPAREN) {
             match(TokenType.LPAREN);
-            parseExpr();
+            Expr expr = parseExpr();
             match(TokenType.RPAREN);
+            return expr;
         } else if (currentToken.getType() == TokenType.CALL) {
-            parseFunCall(null);
+            return parseFunCall(null);
         } else {
             throw new ParseException("Error at line " + currentToken.getLine() +
                     " : Expected number, identifier, '(', or function call but found '" +
@@ -339,36 +631,67 @@ public class Parser {
     }
 
     // Rule 19: FUNCALL
-    private void parseFunCall(String idName) throws ParseException, IOException {
-        System.out.println("FUNCALL");
+    private Expr parseFunCall(String idName) throws ParseException, IOException {
+        trace("FUNCALL");
 
+        int line = currentToken.getLine();
         if (idName == null) {
             match(TokenType.CALL);
             idName = currentToken.getLexeme();
             match(TokenType.ID);
         }
 
-        // Valid func name is assumed
-
         match(TokenType.LPAREN);
 
         // Check that all ids in list are declared
         List<String> identifiers = parseIdList();
-        for (String id : identifiers) {
+        Expr[] arguments = new Expr[identifiers.size()];
+        ValueType[] argumentTypes = new ValueType[identifiers.size()];
+        for (int i = 0; i < identifiers.size(); i++) {
+            String id = identifiers.get(i);
             symbolTable.checkDeclared(id, scanner.getLine());
+            arguments[i] = exprFactory.var(id, symbolTable.getSlot(id));
+            argumentTypes[i] = ValueType.of(symbolTable.getType(id));
         }
 
         match(TokenType.RPAREN);
+
+        // Bind the call to its definition now, so running it needs no lookup
+        Function function = functionTable.resolve(idName, arguments.length, line);
+        if (function == currentFunction) {
+            recursiveFunctions.add(idName);
+            return exprFactory.call(function, arguments);
+        }
+
+        // Small non-recursive functions are expanded in place
+        if (!recursiveFunctions.contains(idName)) {
+            Expr inlined = Inliner.inline(exprFactory, function, arguments, argumentTypes);
+            if (inlined != null) {
+                return inlined;
+            }
+        }
+        return exprFactory.call(function, arguments);
+    }
+
+    // Rule 21: CALL_STMT
+    private Stmt parseCallStmt() throws ParseException, IOException {
+        trace("CALL_STMT");
+
+        int line = currentToken.getLine();
+        Expr call = parseFunCall(null);
         match(TokenType.SEMICOLON);
+
+        return new CallStmt(line, call);
     }
 
     // Rule 17: COMP
-    private void parseComp() throws ParseException, IOException {
-        System.out.println("COMP");
+    private Condition parseComp() throws ParseException, IOException {
+        trace("COMP");
 
         match(TokenType.LPAREN);
-        parseOperand();
+        Expr left = parseOperand();
 
+        TokenType operator = currentToken.getType();
         if (currentToken.getType() == TokenType.EQUALS) {
             match(TokenType.EQUALS);
         } else if (currentToken.getType() == TokenType.NOT_EQUALS) {
@@ -382,7 +705,9 @@ public class Parser {
                     " : Expected comparison operator but found '" + currentToken.getLexeme() + "'");
         }
 
-        parseOperand();
+        Expr right = parseOperand();
         match(TokenType.RPAREN);
+
+        return new Condition(operator, left, right);
     }
 }
\ No newline at end of file
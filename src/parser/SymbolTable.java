@@ -1,25 +1,31 @@
 package parser;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * SymbolTable for Hawk programming language.
  * Works by storing identifiers and their types into a hashmap.
+ * Each identifier is also given a frame slot, in declaration order.
  */
 
 public class SymbolTable {
     private Map<String, SymbolInfo> symbols = new HashMap<>();
+    private List<String> names = new ArrayList<>();
 
     // class to store symbol info
     private class SymbolInfo {
         private String type;
         private int declarationLine;
+        private int slot;
 
         // create new symbol info
-        public SymbolInfo(String type, int declarationLine) {
+        public SymbolInfo(String type, int declarationLine, int slot) {
             this.type = type;
             this.declarationLine = declarationLine;
+            this.slot = slot;
         }
 
         // getters for symbol info
@@ -30,6 +36,10 @@ public class SymbolTable {
         public int getDeclarationLine() {
             return declarationLine;
         }
+
+        public int getSlot() {
+            return slot;
+        }
     }
 
     // Add symbol to symbol table
@@ -38,7 +48,8 @@ public class SymbolTable {
             throw new ParseException("Error at line " + line +
                     ": Redeclaration of variable '" + name + "'");
         }
-        symbols.put(name, new SymbolInfo(type, line));
+        symbols.put(name, new SymbolInfo(type, line, names.size()));
+        names.add(name);
     }
 
     // Check if symbol is declared
@@ -58,12 +69,32 @@ public class SymbolTable {
         return null;
     }
 
+    // Return frame slot of symbol, or -1 if undeclared
+    public int getSlot(String name) {
+        SymbolInfo info = symbols.get(name);
+        if (info != null) {
+            return info.getSlot();
+        }
+        return -1;
+    }
+
+    // Return number of declared symbols (frame size)
+    public int size() {
+        return names.size();
+    }
+
+    // Return symbol names, indexed by slot
+    public String[] getNames() {
+        return names.toArray(new String[0]);
+    }
+
     // Check if word is a reserved word
     public boolean isReservedWord(String word) {
         String[] reservedWords = {
             "program", "begin", "end", "if", "then", "else",
             "input", "output", "while", "loop",
-            "int", "float", "double", "call"
+            "int", "float", "double", "call", "function",
+            "unit", "import"
         };
 
         for (String reserved : reservedWords) {
@@ -0,0 +1,34 @@
+package parser;
+
+import java.util.List;
+
+/**
+ * Leading part of a Hawk source file: whether it is a unit or a program, the unit's
+ * name and the units it imports. Enough to order compilation without a full parse.
+ */
+
+public class UnitHeader {
+    private boolean unit;
+    private String name;
+    private List<String> imports;
+
+    // name is null for a program
+    public UnitHeader(boolean unit, String name, List<String> imports) {
+        this.unit = unit;
+        this.name = name;
+        this.imports = imports;
+    }
+
+    // Getters for the header
+    public boolean isUnit() {
+        return unit;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getImports() {
+        return imports;
+    }
+}
@@ -0,0 +1,181 @@
+package runtime;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Runs one compiled program over many independent input records in parallel.
+ * The program is shared by all workers (it is immutable); every record gets its own
+ * Execution frame, NumberInput and in-memory NumberOutput, and runs under the same
+ * Budget so one bad record cannot stall a worker. At most maxInFlight records
+ * are submitted but not yet delivered, which bounds memory when the sink is slow.
+ */
+
+public final class BatchExecutor implements AutoCloseable {
+
+    // Order in which results reach the sink
+    public enum Ordering {
+        ORDERED, UNORDERED
+    }
+
+    private final Executable program;
+    private final NumberInput.Format format;
+    private final Ordering ordering;
+    private final int maxInFlight;
+    private final Budget budget;
+    private final ExecutorService executor;
+
+    // Constructor for the executor, using virtual threads when the JVM has them
+    public BatchExecutor(Executable program, NumberInput.Format format, Ordering ordering,
+                         int parallelism, int maxInFlight, Budget budget) {
+        if (parallelism < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("parallelism and maxInFlight must be positive");
+        }
+        this.program = program;
+        this.format = format;
+        this.ordering = ordering;
+        this.maxInFlight = maxInFlight;
+        this.budget = budget;
+        this.executor = createExecutor(parallelism);
+    }
+
+    public BatchExecutor(Executable program, NumberInput.Format format, Ordering ordering) {
+        this(program, format, ordering, Runtime.getRuntime().availableProcessors(),
+                Runtime.getRuntime().availableProcessors() * 64, Budget.UNLIMITED);
+    }
+
+    // Virtual thread per task on Java 21+, otherwise a fixed platform thread pool
+    private static ExecutorService createExecutor(int parallelism) {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(parallelism, runnable -> {
+                Thread thread = new Thread(runnable, "hawk-batch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Run the program once per record and hand each result to the sink.
+     * The sink is never called concurrently. Blocks until every record is delivered.
+     * If the sink throws, the remaining results are still offered to it and the first
+     * exception is rethrown once the batch is done.
+     */
+    public BatchMetrics run(Iterator<byte[]> records, Consumer<BatchResult> sink) throws InterruptedException {
+        Delivery delivery = new Delivery(sink);
+        long start = System.nanoTime();
+        long submitted = 0;
+
+        while (records.hasNext()) {
+            byte[] record = records.next();
+            long index = submitted++;
+            delivery.permits.acquire();
+            executor.execute(() -> process(index, record, delivery));
+        }
+
+        // Wait for all outstanding records by taking back every permit
+        delivery.permits.acquire(maxInFlight);
+        delivery.permits.release(maxInFlight);
+
+        // Every result has been offered to the sink; now report the first time it threw
+        Throwable sinkFailure = delivery.sinkFailure;
+        if (sinkFailure instanceof Error) {
+            throw (Error) sinkFailure;
+        } else if (sinkFailure != null) {
+            throw (RuntimeException) sinkFailure;
+        }
+
+        return new BatchMetrics(submitted, delivery.failures.sum(), delivery.inputValues.sum(),
+                delivery.outputBytes.sum(), System.nanoTime() - start);
+    }
+
+    // Worker task: whatever happens to the record, its result is completed so its permit comes back
+    private void process(long index, byte[] record, Delivery delivery) {
+        BatchResult result;
+        try {
+            result = runRecord(index, record, delivery);
+        } catch (Throwable e) {
+            result = new BatchResult(index, new byte[0], null, e);
+        }
+        delivery.complete(result);
+    }
+
+    private BatchResult runRecord(long index, byte[] record, Delivery delivery) {
+        NumberInput input = NumberInput.wrap(record, format);
+        NumberOutput output = NumberOutput.inMemory(format, 256);
+        ExecutionResult result = null;
+        Throwable error = null;
+        try {
+            result = program.run(input, output, budget);
+        } catch (Throwable e) {
+            // Also errors such as StackOverflowError: the record fails, the worker carries on
+            error = e;
+        }
+        delivery.inputValues.add(input.getValuesRead());
+        delivery.outputBytes.add(output.getBytesWritten());
+        return new BatchResult(index, output.toByteArray(), result, error);
+    }
+
+    // Collects finished results and releases their permits once the sink has them
+    private final class Delivery {
+        private final Consumer<BatchResult> sink;
+        private final Semaphore permits = new Semaphore(maxInFlight);
+        private final Map<Long, BatchResult> pending = new HashMap<>();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder inputValues = new LongAdder();
+        private final LongAdder outputBytes = new LongAdder();
+        private long nextIndex;
+        private volatile Throwable sinkFailure;
+
+        Delivery(Consumer<BatchResult> sink) {
+            this.sink = sink;
+        }
+
+        void complete(BatchResult result) {
+            if (!result.isSuccess()) {
+                failures.increment();
+            }
+            synchronized (this) {
+                if (ordering == Ordering.UNORDERED) {
+                    deliver(result);
+                    return;
+                }
+                pending.put(result.getIndex(), result);
+                BatchResult next;
+                while ((next = pending.remove(nextIndex)) != null) {
+                    nextIndex++;
+                    deliver(next);
+                }
+            }
+        }
+
+        // A throwing sink is remembered rather than left to stop the drain, so later results still arrive
+        private void deliver(BatchResult result) {
+            try {
+                sink.accept(result);
+            } catch (RuntimeException | Error e) {
+                if (sinkFailure == null) {
+                    sinkFailure = e;
+                } else {
+                    sinkFailure.addSuppressed(e);
+                }
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,54 @@
+package runtime;
+
+/**
+ * Throughput figures of one BatchExecutor run.
+ */
+
+public final class BatchMetrics {
+    private final long records;
+    private final long failures;
+    private final long inputValues;
+    private final long outputBytes;
+    private final long elapsedNanos;
+
+    public BatchMetrics(long records, long failures, long inputValues, long outputBytes, long elapsedNanos) {
+        this.records = records;
+        this.failures = failures;
+        this.inputValues = inputValues;
+        this.outputBytes = outputBytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Getters for the metrics
+    public long getRecords() {
+        return records;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getInputValues() {
+        return inputValues;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    // Records completed per second of wall-clock time
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return records + " records (" + failures + " failed), " + inputValues + " values in, " +
+                outputBytes + " bytes out, " + (elapsedNanos / 1_000_000) + " ms, " +
+                String.format("%.1f", getRecordsPerSecond()) + " records/s";
+    }
+}
@@ -0,0 +1,44 @@
+package runtime;
+
+/**
+ * Outcome of running a program over one input record.
+ */
+
+public final class BatchResult {
+    private final long index;
+    private final byte[] output;
+    private final ExecutionResult result;
+    private final Throwable error;
+
+    public BatchResult(long index, byte[] output, ExecutionResult result, Throwable error) {
+        this.index = index;
+        this.output = output;
+        this.result = result;
+        this.error = error;
+    }
+
+    // Position of the record in the submitted sequence
+    public long getIndex() {
+        return index;
+    }
+
+    // Output written before the run ended (partial if the run failed)
+    public byte[] getOutput() {
+        return output;
+    }
+
+    // How the run ended, or null if it failed with an error
+    public ExecutionResult getResult() {
+        return result;
+    }
+
+    // Error that stopped the run, or null if it ended normally or ran out of budget
+    public Throwable getError() {
+        return error;
+    }
+
+    // True if the run completed within its budget
+    public boolean isSuccess() {
+        return error == null && result.isCompleted();
+    }
+}
@@ -0,0 +1,37 @@
+package runtime;
+
+/**
+ * Resource limits for one run of an untrusted program.
+ * Steps are charged at loop back-edges and function calls, so any program that runs
+ * for long must spend them. Use Long.MAX_VALUE for a limit that should not apply.
+ */
+
+public final class Budget {
+    public static final Budget UNLIMITED = new Budget(Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+
+    private final long maxSteps;
+    private final long timeLimitMillis;
+    private final long maxOutputBytes;
+
+    public Budget(long maxSteps, long timeLimitMillis, long maxOutputBytes) {
+        if (maxSteps < 0 || timeLimitMillis < 0 || maxOutputBytes < 0) {
+            throw new IllegalArgumentException("Budget limits must not be negative");
+        }
+        this.maxSteps = maxSteps;
+        this.timeLimitMillis = timeLimitMillis;
+        this.maxOutputBytes = maxOutputBytes;
+    }
+
+    // Getters for the limits
+    public long getMaxSteps() {
+        return maxSteps;
+    }
+
+    public long getTimeLimitMillis() {
+        return timeLimitMillis;
+    }
+
+    public long getMaxOutputBytes() {
+        return maxOutputBytes;
+    }
+}
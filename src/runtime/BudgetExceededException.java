@@ -0,0 +1,29 @@
+package runtime;
+
+import java.io.IOException;
+
+/**
+ * Thrown inside a run when a Budget limit is hit, and turned into an ExecutionResult
+ * by the run method. It is an IOException so it unwinds through the same paths as
+ * other run time errors, and carries no stack trace since it is expected control flow.
+ */
+
+public final class BudgetExceededException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final ExecutionResult.Status status;
+
+    public BudgetExceededException(ExecutionResult.Status status) {
+        super("Budget exceeded: " + status);
+        this.status = status;
+    }
+
+    public ExecutionResult.Status getStatus() {
+        return status;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+}
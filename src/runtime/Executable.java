@@ -0,0 +1,23 @@
+package runtime;
+
+import java.io.IOException;
+
+/**
+ * A compiled Hawk program that can be run any number of times, concurrently.
+ * Implementations are immutable; all per-run state lives in the run itself.
+ */
+
+public interface Executable {
+
+    /**
+     * Run once, reading from input and writing to output (flushed before returning).
+     * Running out of budget ends the run with a non-COMPLETED result; other run time
+     * errors are thrown.
+     */
+    ExecutionResult run(NumberInput input, NumberOutput output, Budget budget) throws IOException;
+
+    // Run once without limits
+    default void run(NumberInput input, NumberOutput output) throws IOException {
+        run(input, output, Budget.UNLIMITED);
+    }
+}
@@ -0,0 +1,294 @@
+package runtime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.SynchronousQueue;
+
+/**
+ * Per-run state of a Hawk program.
+ * Holds the variable frames and the I/O channels, so one compiled program can be run
+ * any number of times without the runs seeing each other's values.
+ *
+ * All frames live in one preallocated stack array. The program's own variables form the
+ * bottom frame; each function call reserves the next frameSize slots above the current
+ * top, so a call costs no allocation unless the stack has to grow.
+ *
+ * Both interpreters recurse on the Java stack, several Java frames per Hawk call. So that
+ * MAX_CALL_DEPTH holds whatever the thread's stack size, calls deeper than CALLER_CALLS
+ * continue on a helper thread with a CALL_STACK_BYTES stack, and on the next helper every
+ * THREAD_CALLS calls after that; the waiting thread resumes when the helper is done, so the
+ * run stays single-threaded. Helpers live until endRun(); shallow programs never start one.
+ *
+ * Metering hands out steps in chunks: step() only decrements a counter, and the step
+ * and clock limits are checked when a chunk runs out. The step limit is exact, the
+ * deadline is noticed within CHECK_INTERVAL steps of passing. The output cap is handed
+ * to the NumberOutput, which never lets bytes past it through.
+ */
+
+public final class Execution {
+    private static final int MAX_CALL_DEPTH = 10000;
+    private static final int CALLER_CALLS = 64;
+    private static final int THREAD_CALLS = 1024;
+    private static final long CALL_STACK_BYTES = 16L << 20;
+    private static final long CHECK_INTERVAL = 4096;
+
+    private double[] stack;
+    private int base;
+    private int top;
+    private int depth;
+    private int peakDepth;
+    private int nextStack = CALLER_CALLS;
+    private final List<CallStack> stacks = new ArrayList<>();
+    private final NumberInput input;
+    private final NumberOutput output;
+    private final long outputStart;
+    private final long outerOutputLimit;
+
+    // Metering state: fuel is the part of the current chunk still unspent
+    private final long maxSteps;
+    private final long start;
+    private final long deadline;
+    private long charged;
+    private long fuel;
+
+    // Create new execution state with a zeroed program frame of the given size
+    public Execution(int frameSize, NumberInput input, NumberOutput output) {
+        this(frameSize, input, output, Budget.UNLIMITED);
+    }
+
+    // Create new execution state that stops when the budget runs out
+    public Execution(int frameSize, NumberInput input, NumberOutput output, Budget budget) {
+        this.stack = new double[Math.max(frameSize * 4, 64)];
+        this.top = frameSize;
+        this.input = input;
+        this.output = output;
+        this.maxSteps = budget.getMaxSteps();
+        // The cap counts this run's bytes only; the output's own limit comes back in endRun()
+        this.outputStart = output.getBytesWritten();
+        this.outerOutputLimit = output.getLimit();
+        long maxOutput = budget.getMaxOutputBytes();
+        output.setLimit((maxOutput >= Long.MAX_VALUE - outputStart) ? outerOutputLimit
+                : Math.min(outerOutputLimit, outputStart + maxOutput));
+        this.start = System.nanoTime();
+        long limit = budget.getTimeLimitMillis();
+        this.deadline = (limit >= Long.MAX_VALUE / 1_000_000) ? Long.MAX_VALUE : start + limit * 1_000_000;
+    }
+
+    // Charge one step, called at loop back-edges and calls
+    public void step() throws BudgetExceededException {
+        if (--fuel < 0) {
+            refuel();
+        }
+    }
+
+    // Current chunk is used up: check the limits, then hand out the next chunk
+    private void refuel() throws BudgetExceededException {
+        fuel = 0;
+        if (charged >= maxSteps) {
+            throw new BudgetExceededException(ExecutionResult.Status.STEP_LIMIT);
+        }
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+            throw new BudgetExceededException(ExecutionResult.Status.TIME_LIMIT);
+        }
+        long chunk = Math.min(CHECK_INTERVAL, maxSteps - charged);
+        charged += chunk;
+        fuel = chunk - 1;
+    }
+
+    // Check the output cap, called after each output statement; the output itself never
+    // lets bytes past the cap through, this only stops the run
+    public void checkOutput() throws BudgetExceededException {
+        if (output.isOverLimit()) {
+            throw new BudgetExceededException(ExecutionResult.Status.OUTPUT_LIMIT);
+        }
+    }
+
+    // Steps charged so far
+    public long getSteps() {
+        return charged - fuel;
+    }
+
+    // Summarise the run so far with the given status
+    public ExecutionResult finish(ExecutionResult.Status status) {
+        return new ExecutionResult(status, getSteps(), System.nanoTime() - start,
+                output.getBytesWritten() - outputStart);
+    }
+
+    // Stop the call stack helpers, flush the run's output dropping anything past the cap, then
+    // restore the output's limit. Called once when a run ends, however it ends.
+    public void endRun() throws IOException {
+        for (CallStack stack : stacks) {
+            stack.stop();
+        }
+        stacks.clear();
+        try {
+            output.flush();
+        } finally {
+            output.setLimit(outerOutputLimit);
+        }
+    }
+
+    // Getters and setters for variable slots of the current frame
+    public double get(int slot) {
+        return stack[base + slot];
+    }
+
+    public void set(int slot, double value) {
+        stack[base + slot] = value;
+    }
+
+    // Reserve a zeroed frame above the current top and return its start
+    public int push(int frameSize) throws IOException {
+        if (depth == MAX_CALL_DEPTH) {
+            throw new IOException("Runtime error: call depth exceeds " + MAX_CALL_DEPTH);
+        }
+        if (++depth > peakDepth) {
+            peakDepth = depth;
+        }
+        int frame = top;
+        if (frame + frameSize > stack.length) {
+            stack = Arrays.copyOf(stack, Math.max(stack.length * 2, frame + frameSize));
+        }
+        Arrays.fill(stack, frame, frame + frameSize, 0);
+        top = frame + frameSize;
+        return frame;
+    }
+
+    // Body of a call, for running it on another stack
+    @FunctionalInterface
+    public interface CallBody {
+        void run() throws IOException;
+    }
+
+    // Check if the call just pushed should run on a new stack
+    public boolean needsNewStack() {
+        return depth == nextStack;
+    }
+
+    // Run a call body on the helper thread of the next stack level and wait for it
+    public void runOnNewStack(CallBody body) throws IOException {
+        int outerStack = nextStack;
+        int level = (depth - CALLER_CALLS) / THREAD_CALLS;
+        nextStack = depth + THREAD_CALLS;
+        try {
+            if (level == stacks.size()) {
+                stacks.add(new CallStack());
+            }
+            stacks.get(level).run(body);
+        } finally {
+            nextStack = outerStack;
+        }
+    }
+
+    // Helper thread with a large stack, kept for the rest of the run so programs that
+    // recurse back and forth across a stack boundary do not start a thread every time
+    private static final class CallStack {
+        private static final CallBody STOP = () -> { };
+        private static final Object DONE = new Object();
+
+        private final SynchronousQueue<CallBody> bodies = new SynchronousQueue<>();
+        private final SynchronousQueue<Object> results = new SynchronousQueue<>();
+
+        CallStack() {
+            Thread thread = new Thread(null, this::serve, "hawk-call-stack", CALL_STACK_BYTES);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void serve() {
+            try {
+                CallBody body;
+                while ((body = bodies.take()) != STOP) {
+                    Object result = DONE;
+                    try {
+                        body.run();
+                    } catch (Throwable e) {
+                        result = e;
+                    }
+                    results.put(result);
+                }
+            } catch (InterruptedException e) {
+                // Only the owning run hands out work, nothing is left to finish
+            }
+        }
+
+        // Hand the body over and wait for it; the frames belong to the helper until it
+        // finishes, so an interrupt cannot end the wait early
+        void run(CallBody body) throws IOException {
+            boolean interrupted = false;
+            Object result;
+            while (true) {
+                try {
+                    bodies.put(body);
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            while (true) {
+                try {
+                    result = results.take();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (result instanceof IOException) {
+                throw (IOException) result;
+            } else if (result instanceof RuntimeException) {
+                throw (RuntimeException) result;
+            } else if (result instanceof Error) {
+                throw (Error) result;
+            }
+        }
+
+        // The helper is idle or about to be, so this only waits for it to reach take()
+        void stop() {
+            try {
+                bodies.put(STOP);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Error for recursion that still ran out of Java stack, because the calling thread could not
+    // hold CALLER_CALLS calls or one function body is nested very deeply. StackOverflowError is
+    // caught at the top of a run, once the frames have unwound, and reported as a runtime error.
+    public IOException stackOverflow() {
+        return new IOException("Runtime error: call depth " + peakDepth + " exceeds the available stack");
+    }
+
+    // Store into a reserved frame before it is entered (argument passing)
+    public void setAt(int frame, int slot, double value) {
+        stack[frame + slot] = value;
+    }
+
+    // Make a reserved frame current, returning the caller's frame to restore
+    public int enter(int frame) {
+        int caller = base;
+        base = frame;
+        return caller;
+    }
+
+    // Return to the caller's frame and release the callee's
+    public void leave(int caller, int frame) {
+        base = caller;
+        top = frame;
+        depth--;
+    }
+
+    public NumberInput getInput() {
+        return input;
+    }
+
+    public NumberOutput getOutput() {
+        return output;
+    }
+}
@@ -0,0 +1,53 @@
+package runtime;
+
+/**
+ * Outcome of one run under a Budget.
+ */
+
+public final class ExecutionResult {
+
+    // How the run ended
+    public enum Status {
+        COMPLETED, STEP_LIMIT, TIME_LIMIT, OUTPUT_LIMIT
+    }
+
+    private final Status status;
+    private final long steps;
+    private final long elapsedNanos;
+    private final long outputBytes;
+
+    public ExecutionResult(Status status, long steps, long elapsedNanos, long outputBytes) {
+        this.status = status;
+        this.steps = steps;
+        this.elapsedNanos = elapsedNanos;
+        this.outputBytes = outputBytes;
+    }
+
+    // Getters for the result
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isCompleted() {
+        return status == Status.COMPLETED;
+    }
+
+    // Steps charged (loop iterations and calls)
+    public long getSteps() {
+        return steps;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    @Override
+    public String toString() {
+        return status + " after " + steps + " steps, " + (elapsedNanos / 1_000_000) + " ms, " +
+                outputBytes + " bytes out";
+    }
+}
@@ -0,0 +1,279 @@
+package runtime;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Numeric input source for the Hawk 'input' statement.
+ * Reads numbers straight out of a large byte buffer (heap or memory-mapped) so that
+ * no String is allocated per value. Text mode accepts whitespace or comma separated
+ * decimal numbers, binary mode reads big-endian 8 byte IEEE doubles.
+ */
+
+public final class NumberInput implements Closeable {
+
+    // Encoding of the numbers in the underlying source
+    public enum Format {
+        TEXT, BINARY
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long MAP_WINDOW = 1L << 28;
+
+    // Exact powers of ten, used for the fast decimal conversion path
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final Format format;
+    private final ReadableByteChannel channel;
+    private final FileChannel file;
+    private ByteBuffer buffer;
+    private long mapOffset;
+    private long valuesRead;
+
+    // Scratch copy of the current text number, only turned into a String on the slow path
+    private char[] scratch = new char[32];
+    private int scratchLength;
+
+    private NumberInput(Format format, ReadableByteChannel channel, FileChannel file, ByteBuffer buffer) {
+        this.format = format;
+        this.channel = channel;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    // Buffered input over a stream
+    public static NumberInput of(InputStream in, Format format) {
+        return of(Channels.newChannel(in), format);
+    }
+
+    // Buffered input over a channel
+    public static NumberInput of(ReadableByteChannel channel, Format format) {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        buffer.flip();
+        return new NumberInput(format, channel, null, buffer);
+    }
+
+    // Input over bytes that are already in memory (no copy is made)
+    public static NumberInput wrap(ByteBuffer bytes, Format format) {
+        return new NumberInput(format, null, null, bytes.slice());
+    }
+
+    public static NumberInput wrap(byte[] bytes, Format format) {
+        return wrap(ByteBuffer.wrap(bytes), format);
+    }
+
+    // Memory-mapped input over a file, mapped in windows so files above 2GB work too
+    public static NumberInput map(Path path, Format format) throws IOException {
+        FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+        NumberInput input = new NumberInput(format, null, file, ByteBuffer.allocate(0));
+        input.fill();
+        return input;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    // Number of values consumed so far
+    public long getValuesRead() {
+        return valuesRead;
+    }
+
+    // Check if another value is available
+    public boolean hasNext() throws IOException {
+        if (format == Format.BINARY) {
+            return fillBinary() > 0;
+        }
+        return skipSeparators() >= 0;
+    }
+
+    // Read the next value
+    public double read() throws IOException {
+        double value = (format == Format.BINARY) ? readBinary() : readText();
+        valuesRead++;
+        return value;
+    }
+
+    private double readBinary() throws IOException {
+        int available = fillBinary();
+        if (available == 0) {
+            throw new EOFException("Input error: no more values after " + valuesRead + " read");
+        }
+        if (available < Double.BYTES) {
+            throw new IOException("Input error: truncated binary value after " + valuesRead + " read");
+        }
+        return buffer.getDouble();
+    }
+
+    // Fill until a whole value is buffered; fewer bytes are only returned at end of input,
+    // since a pipe may hand over a value in several short reads
+    private int fillBinary() throws IOException {
+        while (buffer.remaining() < Double.BYTES && fill()) {
+            // Keep the partial value and read on
+        }
+        return buffer.remaining();
+    }
+
+    private double readText() throws IOException {
+        int c = skipSeparators();
+        if (c < 0) {
+            throw new EOFException("Input error: no more values after " + valuesRead + " read");
+        }
+        scratchLength = 0;
+
+        boolean negative = false;
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            c = advance(c);
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean seenDigit = false;
+
+        while (c >= '0' && c <= '9') {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+                digits++;
+            }
+            seenDigit = true;
+            c = advance(c);
+        }
+
+        if (c == '.') {
+            c = advance(c);
+            while (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                } else {
+                    digits++;
+                }
+                seenDigit = true;
+                c = advance(c);
+            }
+        }
+
+        if (!seenDigit) {
+            throw new IOException("Input error: malformed number at value " + (valuesRead + 1));
+        }
+
+        if (c == 'e' || c == 'E') {
+            c = advance(c);
+            int expSign = 1;
+            if (c == '-' || c == '+') {
+                expSign = (c == '-') ? -1 : 1;
+                c = advance(c);
+            }
+            if (c < '0' || c > '9') {
+                throw new IOException("Input error: malformed exponent at value " + (valuesRead + 1));
+            }
+            int exp = 0;
+            while (c >= '0' && c <= '9') {
+                exp = Math.min(exp * 10 + (c - '0'), 100000);
+                c = advance(c);
+            }
+            exponent += expSign * exp;
+        }
+
+        if (c >= 0 && !isSeparator(c)) {
+            throw new IOException("Input error: unexpected character '" + (char) c +
+                    "' at value " + (valuesRead + 1));
+        }
+
+        double value;
+        if (digits <= 15 && exponent >= -22 && exponent <= 22) {
+            // Both operands are exact, so a single multiply/divide is correctly rounded
+            value = (exponent < 0) ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+        } else {
+            value = Double.parseDouble(new String(scratch, 0, scratchLength));
+            return value;
+        }
+        return negative ? -value : value;
+    }
+
+    // Record current char into scratch, then move to the next one
+    private int advance(int c) throws IOException {
+        if (scratchLength == scratch.length) {
+            char[] grown = new char[scratch.length * 2];
+            System.arraycopy(scratch, 0, grown, 0, scratchLength);
+            scratch = grown;
+        }
+        scratch[scratchLength++] = (char) c;
+        buffer.get();
+        return peek();
+    }
+
+    // Skip whitespace and commas, returning the next char or -1 at end of input
+    private int skipSeparators() throws IOException {
+        int c = peek();
+        while (c >= 0 && isSeparator(c)) {
+            buffer.get();
+            c = peek();
+        }
+        return c;
+    }
+
+    private static boolean isSeparator(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == ',';
+    }
+
+    // Look at the next byte without consuming it
+    private int peek() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get(buffer.position()) & 0xFF;
+    }
+
+    // Bring more bytes into the buffer, keeping unread ones. Returns false at end of input.
+    private boolean fill() throws IOException {
+        int before = buffer.remaining();
+        if (file != null) {
+            long position = mapOffset + buffer.position();
+            long size = file.size();
+            if (position >= size) {
+                return false;
+            }
+            mapOffset = position;
+            buffer = file.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, size - position));
+        } else if (channel != null) {
+            buffer.compact();
+            int read = 0;
+            while (read == 0 && buffer.hasRemaining()) {
+                read = channel.read(buffer);
+            }
+            buffer.flip();
+        }
+        return buffer.remaining() > before;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (file != null) {
+            file.close();
+        } else if (channel != null) {
+            channel.close();
+        }
+    }
+}
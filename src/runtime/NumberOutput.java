@@ -0,0 +1,218 @@
+package runtime;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Numeric output sink for the Hawk 'output' statement.
+ * Values are encoded into one large buffer that is only handed to the channel when full
+ * (or on an explicit flush). Text mode writes space separated values with one line per
+ * statement, binary mode writes big-endian 8 byte IEEE doubles readable by NumberInput.
+ * An in-memory output has no channel and grows its buffer instead of flushing.
+ * An optional limit caps the total bytes sent or kept; values are still encoded past it,
+ * so the overrun can be detected, but those bytes are discarded at the next flush.
+ */
+
+public final class NumberOutput implements Flushable, Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final NumberInput.Format format;
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private final byte[] digits = new byte[20];
+    private boolean lineStart = true;
+    private long bytesWritten;
+    private long limit = Long.MAX_VALUE;
+
+    private NumberOutput(NumberInput.Format format, WritableByteChannel channel, int bufferSize) {
+        this.format = format;
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    // Buffered output over a stream
+    public static NumberOutput of(OutputStream out, NumberInput.Format format) {
+        return of(Channels.newChannel(out), format);
+    }
+
+    // Buffered output over a channel
+    public static NumberOutput of(WritableByteChannel channel, NumberInput.Format format) {
+        return new NumberOutput(format, channel, BUFFER_SIZE);
+    }
+
+    // Output collected in memory instead of being sent to a channel
+    public static NumberOutput inMemory(NumberInput.Format format, int initialSize) {
+        return new NumberOutput(format, null, Math.max(initialSize, 32));
+    }
+
+    // Copy of everything written to an in-memory output, up to the limit
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[(int) Math.min(buffer.position(), limit)];
+        buffer.duplicate().flip().get(bytes);
+        return bytes;
+    }
+
+    public NumberInput.Format getFormat() {
+        return format;
+    }
+
+    // Total bytes produced so far, flushed or not, counting no more than the limit
+    public long getBytesWritten() {
+        return Math.min(bytesWritten + buffer.position(), limit);
+    }
+
+    // Cap on the total bytes that reach the channel (or the in-memory copy)
+    public void setLimit(long maxBytes) {
+        this.limit = maxBytes;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    // True once more bytes have been produced than the limit lets through
+    public boolean isOverLimit() {
+        return bytesWritten + buffer.position() > limit;
+    }
+
+    // Write an integral value
+    public void writeLong(long value) throws IOException {
+        if (format == NumberInput.Format.BINARY) {
+            writeBinary(value);
+            return;
+        }
+        separate();
+        ensure(digits.length);
+        putLong(value);
+    }
+
+    // Write a double precision value
+    public void writeDouble(double value) throws IOException {
+        if (format == NumberInput.Format.BINARY) {
+            writeBinary(value);
+            return;
+        }
+        separate();
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            ensure(digits.length + 3);
+            if (value == 0 && 1 / value < 0) {
+                buffer.put((byte) '-');
+            }
+            putLong((long) value);
+            buffer.put((byte) '.').put((byte) '0');
+        } else {
+            putAscii(Double.toString(value));
+        }
+    }
+
+    // Write a single precision value
+    public void writeFloat(float value) throws IOException {
+        if (format == NumberInput.Format.BINARY) {
+            writeBinary(value);
+            return;
+        }
+        separate();
+        if (value == (long) value && Math.abs(value) < 1e7f) {
+            ensure(digits.length + 3);
+            if (value == 0 && 1 / value < 0) {
+                buffer.put((byte) '-');
+            }
+            putLong((long) value);
+            buffer.put((byte) '.').put((byte) '0');
+        } else {
+            putAscii(Float.toString(value));
+        }
+    }
+
+    // End the values of one output statement
+    public void endRecord() throws IOException {
+        if (format == NumberInput.Format.TEXT) {
+            ensure(1);
+            buffer.put((byte) '\n');
+            lineStart = true;
+        }
+    }
+
+    private void writeBinary(double value) throws IOException {
+        ensure(Double.BYTES);
+        buffer.putDouble(value);
+    }
+
+    private void separate() throws IOException {
+        if (!lineStart) {
+            ensure(1);
+            buffer.put((byte) ' ');
+        }
+        lineStart = false;
+    }
+
+    // Encode a long as decimal digits without going through a String
+    private void putLong(long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+        } else {
+            value = -value;
+        }
+        // Work with the negative value so Long.MIN_VALUE does not overflow
+        int i = digits.length;
+        do {
+            digits[--i] = (byte) ('0' - (value % 10));
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, i, digits.length - i);
+    }
+
+    private void putAscii(String text) throws IOException {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    // Flush early if fewer than n bytes are free
+    private void ensure(int n) throws IOException {
+        if (buffer.remaining() < n) {
+            if (channel == null) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + n));
+                buffer.flip();
+                buffer = grown.put(buffer);
+            } else {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // Discard the part past the limit, so it stays gone if the limit is raised later
+        long room = Math.max(0, limit - bytesWritten);
+        if (channel == null) {
+            if (buffer.position() > room) {
+                buffer.position((int) room);
+            }
+            return;
+        }
+        buffer.flip();
+        if (buffer.remaining() > room) {
+            buffer.limit(buffer.position() + (int) room);
+        }
+        bytesWritten += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
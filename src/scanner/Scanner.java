@@ -134,6 +134,15 @@ public class Scanner {
                 case "call":
                     type = TokenType.CALL;
                     break;
+                case "function":
+                    type = TokenType.FUNCTION;
+                    break;
+                case "unit":
+                    type = TokenType.UNIT;
+                    break;
+                case "import":
+                    type = TokenType.IMPORT;
+                    break;
                 default:
                     if (symbolTable.isReservedWord(id)) {
                         throw new IOException("Error at line " + line + ": " + id + " ' is a reserved word.");
@@ -0,0 +1,279 @@
+package hawkc;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import ast.Program;
+import build.UnitBuilder;
+import parser.Parser;
+import runtime.Budget;
+import runtime.ExecutionResult;
+import runtime.Executable;
+import runtime.NumberInput;
+import runtime.NumberOutput;
+import scanner.Scanner;
+
+/**
+ * Round-trip tests for the .hawkc format.
+ * Every sample program is parsed, written with HawkcWriter, loaded back with
+ * MappedProgram.load and run on the same input as the tree interpreter; the two outputs
+ * must be byte for byte identical. Damaged files must be rejected when loaded.
+ *
+ * No test framework is needed: compile src and test together and run this class,
+ *   javac -d out $(find src test -name '*.java') && java -cp out hawkc.HawkcRoundTripTest
+ * It exits with status 1 if any check fails.
+ */
+
+public final class HawkcRoundTripTest {
+
+    // Sample programs with the text input each one reads
+    private static final String[][] SAMPLES = {
+        {"arithmetic and loops",
+            "program\n" +
+            "n, i: int;\n" +
+            "s, v: double;\n" +
+            "begin\n" +
+            "input n;\n" +
+            "i := 0;\n" +
+            "while (i < n) loop\n" +
+            "input v;\n" +
+            "s := s + v * 2 - 1 - 1;\n" +
+            "i := i + 1;\n" +
+            "end loop;\n" +
+            "output s, i;\n" +
+            "output 3.5;\n" +
+            "end;\n",
+            "4 1.5 2 -3 10.25"},
+        {"types and coercion",
+            "program\n" +
+            "a: int;\n" +
+            "f: float;\n" +
+            "d: double;\n" +
+            "begin\n" +
+            "input d;\n" +
+            "a := d / 3;\n" +
+            "f := d / 3;\n" +
+            "d := d / 3;\n" +
+            "output a, f, d;\n" +
+            "end;\n",
+            "10"},
+        {"branches",
+            "program\n" +
+            "x, y: int;\n" +
+            "begin\n" +
+            "input x, y;\n" +
+            "while (x > 0) loop\n" +
+            "if (x = y) then\n" +
+            "output x;\n" +
+            "else\n" +
+            "output y;\n" +
+            "end if;\n" +
+            "x := x - 1;\n" +
+            "end loop;\n" +
+            "end;\n",
+            "5 3"},
+        {"functions and recursion",
+            "program\n" +
+            "function sq(a: int): int;\n" +
+            "begin\n" +
+            "sq := a * a;\n" +
+            "end;\n" +
+            "function fact(n: int): int;\n" +
+            "m, r: int;\n" +
+            "begin\n" +
+            "if (n < 2) then\n" +
+            "fact := 1;\n" +
+            "else\n" +
+            "m := n - 1;\n" +
+            "r := fact(m);\n" +
+            "fact := n * r;\n" +
+            "end if;\n" +
+            "end;\n" +
+            "function echo(a: double): double;\n" +
+            "begin\n" +
+            "output a;\n" +
+            "echo := a;\n" +
+            "end;\n" +
+            "x, y: int;\n" +
+            "begin\n" +
+            "input x;\n" +
+            "y := sq(x) + fact(x);\n" +
+            "output y;\n" +
+            "call echo(y);\n" +
+            "end;\n",
+            "6"},
+        {"shared subexpressions",
+            "program\n" +
+            "x, y, z, a, b: double;\n" +
+            "begin\n" +
+            "input x, y, z;\n" +
+            "a := x * y + z;\n" +
+            "b := (x * y + z) * (x * y + z) - x * y;\n" +
+            "output a, b;\n" +
+            "if ((x * y) > (x * y - 1)) then\n" +
+            "output 1;\n" +
+            "end if;\n" +
+            "end;\n",
+            "1.5 -2 7"},
+    };
+
+    private static final String UNIT_GEO =
+            "unit geo;\n" +
+            "function area(w, h: int): int;\n" +
+            "begin\n" +
+            "area := w * h;\n" +
+            "end;\n" +
+            "end;\n";
+
+    private static final String UNIT_MAIN =
+            "program\n" +
+            "import geo;\n" +
+            "w, h, s: int;\n" +
+            "begin\n" +
+            "input w, h;\n" +
+            "s := area(w, h) + area(h, h);\n" +
+            "output s;\n" +
+            "end;\n";
+
+    private static int checks;
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("hawkc-test");
+        try {
+            for (String[] sample : SAMPLES) {
+                Program program = parse(sample[1]);
+                roundTrip(sample[0], program, sample[2], dir);
+            }
+            roundTrip("imported units", buildWithUnit(), "3 4", dir);
+
+            Program program = parse(SAMPLES[3][1]);
+            byte[] image = HawkcWriter.toBytes(program);
+            checkLoads("intact file", image, dir);
+            checkRejected("flipped payload byte", corrupt(image, image.length - 1), "checksum mismatch", dir);
+            checkRejected("flipped constant", corrupt(image, image.length / 2), "checksum mismatch", dir);
+            checkRejected("wrong version", withVersion(image, HawkcFormat.VERSION + 1), "unsupported version", dir);
+            checkRejected("old version", withVersion(image, HawkcFormat.VERSION - 1), "unsupported version", dir);
+            checkRejected("truncated file", Arrays.copyOf(image, image.length - 5), "payload bytes", dir);
+            checkRejected("trailing bytes", Arrays.copyOf(image, image.length + 3), "payload bytes", dir);
+            checkRejected("shorter than header", Arrays.copyOf(image, HawkcFormat.HEADER_SIZE - 1), "bad magic", dir);
+            checkRejected("bad magic", corrupt(image, 0), "bad magic", dir);
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(dir);
+        }
+
+        System.out.println(checks + " checks, " + failures + " failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Compare tree and mapped runs in both text and binary I/O; a run error fails only this sample
+    private static void roundTrip(String name, Program program, String input, Path dir) {
+        try {
+            compareRuns(name, program, input, dir);
+        } catch (IOException e) {
+            check(name + ": " + e.getMessage(), false);
+        }
+    }
+
+    private static void compareRuns(String name, Program program, String input, Path dir) throws IOException {
+        Path file = dir.resolve(name.replace(' ', '_') + ".hawkc");
+        HawkcWriter.write(program, file);
+        MappedProgram mapped = MappedProgram.load(file);
+        check(name + ": frame size", mapped.getFrameSize() == program.getFrameSize());
+        for (int slot = 0; slot < program.getFrameSize(); slot++) {
+            check(name + ": symbol " + slot, program.getName(slot).equals(mapped.getSymbolName(slot)) &&
+                    program.getType(slot) == mapped.getSymbolType(slot));
+        }
+
+        byte[] text = input.getBytes(StandardCharsets.US_ASCII);
+        byte[] expected = run(program, text, NumberInput.Format.TEXT);
+        check(name + ": text output", Arrays.equals(expected, run(mapped, text, NumberInput.Format.TEXT)));
+
+        byte[] binary = toBinary(input);
+        expected = run(program, binary, NumberInput.Format.BINARY);
+        check(name + ": binary output", Arrays.equals(expected, run(mapped, binary, NumberInput.Format.BINARY)));
+
+        // Writing is deterministic, so the file can be cached and compared
+        check(name + ": stable encoding", Arrays.equals(Files.readAllBytes(file), HawkcWriter.toBytes(program)));
+    }
+
+    private static byte[] run(Executable program, byte[] input, NumberInput.Format format) throws IOException {
+        NumberOutput output = NumberOutput.inMemory(format, 256);
+        ExecutionResult result = program.run(NumberInput.wrap(input, format), output, Budget.UNLIMITED);
+        check("run completes", result.isCompleted());
+        return output.toByteArray();
+    }
+
+    private static void checkLoads(String name, byte[] image, Path dir) throws IOException {
+        Path file = dir.resolve("load.hawkc");
+        Files.write(file, image);
+        MappedProgram.load(file);
+        MappedProgram.wrap(ByteBuffer.wrap(image), true);
+        check(name + ": loads", true);
+    }
+
+    private static void checkRejected(String name, byte[] image, String reason, Path dir) throws IOException {
+        Path file = dir.resolve("damaged.hawkc");
+        Files.write(file, image);
+        try {
+            MappedProgram.load(file);
+            check(name + ": rejected", false);
+        } catch (IOException e) {
+            check(name + ": rejected for " + reason + " (" + e.getMessage() + ")", e.getMessage().contains(reason));
+        }
+    }
+
+    private static byte[] corrupt(byte[] image, int position) {
+        byte[] copy = image.clone();
+        copy[position] ^= 0x5A;
+        return copy;
+    }
+
+    private static byte[] withVersion(byte[] image, int version) {
+        byte[] copy = image.clone();
+        ByteBuffer.wrap(copy).putShort(4, (short) version);
+        return copy;
+    }
+
+    private static byte[] toBinary(String input) {
+        String[] values = input.trim().split("\\s+");
+        ByteBuffer bytes = ByteBuffer.allocate(values.length * Double.BYTES);
+        for (String value : values) {
+            bytes.putDouble(Double.parseDouble(value));
+        }
+        return bytes.array();
+    }
+
+    private static Program parse(String source) throws Exception {
+        return new Parser(new Scanner(new StringReader(source)), false).parseProgram();
+    }
+
+    private static Program buildWithUnit() throws Exception {
+        try (UnitBuilder builder = new UnitBuilder(2)) {
+            builder.put("geo", UNIT_GEO);
+            builder.put("main", UNIT_MAIN);
+            check("units build", builder.build().isSuccess());
+            return builder.getProgram("main");
+        }
+    }
+
+    private static void check(String name, boolean passed) {
+        checks++;
+        if (!passed) {
+            failures++;
+            System.out.println("FAIL " + name);
+        }
+    }
+}